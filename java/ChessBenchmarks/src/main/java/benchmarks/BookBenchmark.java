@@ -0,0 +1,110 @@
+package benchmarks;
+
+import engine.Book;
+import engine.BookWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BookBenchmark measures how long a probe of a memory mapped opening book
+ * takes:
+ * <ul>
+ * <li>hit probes a key that is in the book</li>
+ * <li>miss probes a random key, which is almost never in the book</li>
+ * </ul>
+ * The book has random keys, which are spread the same as Zobrist keys, and
+ * is written to a temporary file that is deleted afterwards. Every probe
+ * takes a key at random, so most of them read pages the last one didn't.
+ * <pre>
+ * java -jar target/benchmarks.jar BookBenchmark -prof gc
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BookBenchmark {
+
+    private static final int SAMPLE_KEYS = 1 << 16;
+
+    /**
+     * The number of entries, 16 bytes each.
+     */
+    @Param({"100000", "10000000"})
+    public int entries;
+
+    private final int[] moves = new int[Book.MAX_ENTRIES];
+    private final int[] weights = new int[Book.MAX_ENTRIES];
+    private final long[] hitKeys = new long[SAMPLE_KEYS];
+    private final SplittableRandom random = new SplittableRandom(2);
+    private File file;
+    private Book book;
+    private int next;
+
+    /**
+     * Writes the book and keeps some of its keys to probe.
+     *
+     * @throws IOException if the book can't be written
+     */
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SplittableRandom keys = new SplittableRandom(1);
+        long[] sorted = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            sorted[i] = keys.nextLong();
+        }
+        Arrays.sort(sorted);
+        file = File.createTempFile("book", ".bin");
+        try (BookWriter writer = new BookWriter(file.getPath())) {
+            for (long key : sorted) {
+                writer.add(key, 1, 1);
+            }
+        }
+        for (int i = 0; i < SAMPLE_KEYS; i++) {
+            hitKeys[i] = sorted[keys.nextInt(entries)];
+        }
+        book = Book.open(file.getPath());
+    }
+
+    /**
+     * Deletes the book.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        book = null;
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public int hit() {
+        next = (next + 1) & (SAMPLE_KEYS - 1);
+        return book.probe(hitKeys[next], moves, weights);
+    }
+
+    @Benchmark
+    public int miss() {
+        return book.probe(random.nextLong(), moves, weights);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import engine.Evaluation;
+import engine.Fen;
+import engine.MoveGenerator;
+import engine.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EvaluationBenchmark measures how many evaluations a second the search can
+ * do on each position:
+ * <ul>
+ * <li>evaluate is the evaluation with the incremental piece-square
+ * score</li>
+ * <li>scan is adding the piece-square score up from every piece, which
+ * evaluate no longer does</li>
+ * <li>makeEvaluateUnmake is evaluating after every legal move, which
+ * includes the cost of keeping the score up to date</li>
+ * </ul>
+ * <pre>
+ * java -jar target/benchmarks.jar EvaluationBenchmark
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+
+    @Param({"opening", "middlegame", "kiwipete", "tactical", "endgame",
+        "pawnEndgame"})
+    public String position;
+
+    private final Position pos = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int moveCount;
+
+    /**
+     * Loads the position and its legal moves.
+     */
+    @Setup
+    public void setup() {
+        Fen.load(pos, Positions.fen(position));
+        moveCount = MoveGenerator.generate(pos, moves);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return Evaluation.evaluate(pos);
+    }
+
+    @Benchmark
+    public int scan() {
+        return Evaluation.scan(pos);
+    }
+
+    /**
+     * makeEvaluateUnmake scores the position after every legal move, so one
+     * operation is moveCount evaluations.
+     */
+    @Benchmark
+    public int makeEvaluateUnmake() {
+        int sum = 0;
+        for (int i = 0; i < moveCount; i++) {
+            pos.makeMove(moves[i]);
+            sum += Evaluation.evaluate(pos);
+            pos.unmakeMove();
+        }
+        return sum;
+    }
+}
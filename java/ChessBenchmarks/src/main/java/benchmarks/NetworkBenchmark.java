@@ -0,0 +1,88 @@
+package benchmarks;
+
+import engine.Evaluation;
+import engine.Fen;
+import engine.MoveGenerator;
+import engine.Network;
+import engine.NetworkKernel;
+import engine.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NetworkBenchmark measures the network evaluation on the scalar kernel:
+ * <ul>
+ * <li>evaluate runs the layers after the accumulator</li>
+ * <li>makeUnmake plays and takes back every legal move, which updates the
+ * accumulator twice per move</li>
+ * </ul>
+ * The network has random weights, which cost the same to run as trained
+ * ones. VectorNetworkBenchmark runs the same benchmarks on the vector
+ * kernel, and is only built on JDK 17 or newer since its fork needs the
+ * Vector API module.
+ * <pre>
+ * java -jar target/benchmarks.jar NetworkBenchmark
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NetworkBenchmark {
+
+    @Param({"middlegame", "endgame"})
+    public String position;
+
+    private final Position pos = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private int moveCount;
+
+    /**
+     * Loads the position and sets up the network on the kernel.
+     */
+    @Setup
+    public void setup() {
+        pos.setNetwork(Network.random(1).withKernel(kernel()));
+        Fen.load(pos, Positions.fen(position));
+        moveCount = MoveGenerator.generate(pos, moves);
+    }
+
+    /**
+     * kernel gets the kernel the network runs on.
+     *
+     * @return the kernel
+     */
+    protected NetworkKernel kernel() {
+        return NetworkKernel.scalar();
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return Evaluation.evaluate(pos);
+    }
+
+    @Benchmark
+    public long makeUnmake() {
+        long keys = 0;
+        for (int i = 0; i < moveCount; i++) {
+            pos.makeMove(moves[i]);
+            keys ^= pos.getKey();
+            pos.unmakeMove();
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+/**
+ * Positions are the FENs the benchmarks run on. They are picked to look like
+ * real games: an opening, busy middlegames with pins and checks, and a few
+ * endgames where the king and pawns do most of the moving.
+ *
+ * @author Ben Clark
+ */
+public final class Positions {
+
+    /**
+     * The name every benchmark @Param refers to, in the same order as FENS.
+     */
+    public static final String[] NAMES = {"opening", "middlegame", "kiwipete",
+        "tactical", "endgame", "pawnEndgame"};
+
+    public static final String[] FENS = {
+        "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "r1b2rk1/2q1bppp/p2ppn2/1p6/3BPP2/2N2B2/PPPQ2PP/2KR3R b - - 0 13",
+        "8/5pk1/6p1/3R4/1r5P/6P1/5PK1/8 w - - 0 40",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+    };
+
+    private Positions() {
+
+    }
+
+    /**
+     * fen gets the FEN of a named position.
+     *
+     * @param name one of NAMES
+     * @return the FEN of that position
+     */
+    public static String fen(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return FENS[i];
+            }
+        }
+        throw new IllegalArgumentException("Unknown position: " + name);
+    }
+}
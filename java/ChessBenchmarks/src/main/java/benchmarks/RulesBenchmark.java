@@ -0,0 +1,185 @@
+package benchmarks;
+
+import engine.Fen;
+import engine.Move;
+import engine.MoveGenerator;
+import engine.Position;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * RulesBenchmark measures the rule checks Game runs on every move. Each one
+ * maps onto the old Tile[][] code path it replaced:
+ * <ul>
+ * <li>legalMoves is pieceCanMove, checkMate and stalemate</li>
+ * <li>inCheck is inCheck</li>
+ * <li>repetitions is addBoardToMap and threeFoldRepetition</li>
+ * <li>insufficientMaterial is checkInsufficientMatingMaterial</li>
+ * <li>checkMove is the whole path of validating and playing a move</li>
+ * </ul>
+ * Run with the gc profiler to see the allocation rate:
+ * <pre>
+ * java -jar target/benchmarks.jar RulesBenchmark -prof gc
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RulesBenchmark {
+
+    @Param({"opening", "middlegame", "kiwipete", "tactical", "endgame",
+        "pawnEndgame"})
+    public String position;
+
+    /**
+     * How many reversible moves are played before repetitions is measured.
+     */
+    private static final int HISTORY_PLIES = 40;
+
+    private final Position pos = new Position();
+
+    /**
+     * The position after HISTORY_PLIES reversible moves, so repetitions has
+     * a history to look back through like it does in a game.
+     */
+    private final Position history = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] replies = new int[MoveGenerator.MAX_MOVES];
+    private int moveCount;
+
+    /**
+     * Loads the position and its legal moves, and plays the reversible moves
+     * of the history.
+     */
+    @Setup
+    public void setup() {
+        Fen.load(pos, Positions.fen(position));
+        moveCount = MoveGenerator.generate(pos, moves);
+        Fen.load(history, Positions.fen(position));
+        for (int ply = 0; ply < HISTORY_PLIES; ply++) {
+            int move = reversibleMove(history, ply, true);
+            if (move == Move.NONE) {
+                throw new IllegalStateException("No reversible move in "
+                        + position);
+            }
+            history.makeMove(move);
+        }
+    }
+
+    /**
+     * reversibleMove picks a quiet move of a piece other than a pawn, which
+     * leaves the halfmove clock running, so every ply stays in the history
+     * repetitions looks through. Which one is picked changes with the ply,
+     * and a move that gives check or leaves the other side without a
+     * reversible move of its own is passed over.
+     *
+     * @param pos the position
+     * @param ply how many moves have been played
+     * @param lookAhead whether or not to check the other side's replies
+     * @return the packed move or Move.NONE if there is none
+     */
+    private static int reversibleMove(Position pos, int ply,
+            boolean lookAhead) {
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int count = MoveGenerator.generate(pos, moves);
+        int reversible = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (Move.flags(move) == Move.QUIET && Position.typeOf(
+                    pos.pieceAt(Move.from(move))) != Position.PAWN) {
+                moves[reversible++] = move;
+            }
+        }
+        for (int i = 0; i < reversible; i++) {
+            int move = moves[(ply * 7 + i) % reversible];
+            if (!lookAhead) {
+                return move;
+            }
+            pos.makeMove(move);
+            boolean playable = !pos.inCheck()
+                    && reversibleMove(pos, ply + 1, false) != Move.NONE;
+            pos.unmakeMove();
+            if (playable) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    @Benchmark
+    public int legalMoves() {
+        return MoveGenerator.generate(pos, moves);
+    }
+
+    @Benchmark
+    public boolean inCheck() {
+        return pos.inCheck();
+    }
+
+    @Benchmark
+    public int repetitions() {
+        return history.repetitions();
+    }
+
+    @Benchmark
+    public boolean insufficientMaterial() {
+        return pos.insufficientMaterial();
+    }
+
+    /**
+     * makeUnmake plays and takes back every legal move, which is what
+     * validation used to do with checkPieceBlock.
+     */
+    @Benchmark
+    public long makeUnmake() {
+        long keys = 0;
+        for (int i = 0; i < moveCount; i++) {
+            pos.makeMove(moves[i]);
+            keys ^= pos.getKey();
+            pos.unmakeMove();
+        }
+        return keys;
+    }
+
+    /**
+     * checkMove validates every legal move the way Game does when a piece is
+     * dropped: find the move, play it, generate the replies and check for
+     * check, mate, repetition and material, then take it back.
+     */
+    @Benchmark
+    public void checkMove(Blackhole bh) {
+        for (int i = 0; i < moveCount; i++) {
+            int from = Move.from(moves[i]);
+            int to = Move.to(moves[i]);
+            int found = Move.NONE;
+            for (int j = 0; j < moveCount; j++) {
+                if (Move.from(moves[j]) == from && Move.to(moves[j]) == to) {
+                    found = moves[j];
+                    break;
+                }
+            }
+            pos.makeMove(found);
+            bh.consume(MoveGenerator.generate(pos, replies));
+            bh.consume(pos.inCheck());
+            bh.consume(pos.repetitions());
+            bh.consume(pos.insufficientMaterial());
+            pos.unmakeMove();
+        }
+    }
+}
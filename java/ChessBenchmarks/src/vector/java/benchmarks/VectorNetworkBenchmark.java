@@ -0,0 +1,29 @@
+package benchmarks;
+
+import engine.NetworkKernel;
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * VectorNetworkBenchmark runs the benchmarks of NetworkBenchmark on the
+ * vector kernel, so the two kernels can be compared. Its fork is started
+ * with the Vector API module, which only JDK 16 and newer have, so it is
+ * only compiled by the vector profile on JDK 17 or newer.
+ * <pre>
+ * java -jar target/benchmarks.jar NetworkBenchmark
+ * </pre>
+ * runs both.
+ *
+ * @author Ben Clark
+ */
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorNetworkBenchmark extends NetworkBenchmark {
+
+    @Override
+    protected NetworkKernel kernel() {
+        NetworkKernel vector = NetworkKernel.vector();
+        if (vector == null) {
+            throw new IllegalStateException("The vector kernel is not built");
+        }
+        return vector;
+    }
+}
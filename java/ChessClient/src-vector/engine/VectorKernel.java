@@ -0,0 +1,134 @@
+package engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * VectorKernel runs a Network with the SIMD instructions of the CPU through
+ * the Vector API. It needs JDK 16 or newer with --add-modules
+ * jdk.incubator.vector, which is why it lives outside the Java 8 sources.
+ * NetworkKernel.best picks it up when it is on the class path and the module
+ * is there, and falls back to ScalarKernel otherwise.
+ *
+ * The hidden layer multiplies clipped inputs and weights as shorts, which
+ * can't overflow because Network keeps the weights within a byte, and only
+ * widens the products to ints to add them up.
+ *
+ * @author Ben Clark
+ */
+final class VectorKernel implements NetworkKernel {
+
+    private static final VectorSpecies<Short> SHORTS =
+            ShortVector.SPECIES_PREFERRED;
+
+    /**
+     * Ints of the same width as SHORTS, so one short vector widens into two
+     * of them.
+     */
+    private static final VectorSpecies<Integer> INTS =
+            IntVector.SPECIES_PREFERRED;
+
+    private static final short ACTIVATION_MAX = Network.ACTIVATION_MAX;
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(accumulator.length); i < end;
+                i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void sub(short[] accumulator, short[] weights, int offset) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(accumulator.length); i < end;
+                i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .sub(ShortVector.fromArray(SHORTS, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void addSub(short[] accumulator, short[] weights, int addOffset,
+            int subOffset) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(accumulator.length); i < end;
+                i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i)
+                    .add(ShortVector.fromArray(SHORTS, weights, addOffset + i))
+                    .sub(ShortVector.fromArray(SHORTS, weights, subOffset + i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < accumulator.length; i++) {
+            accumulator[i] += weights[addOffset + i] - weights[subOffset + i];
+        }
+    }
+
+    @Override
+    public int forward(Network network, short[] us, short[] them,
+            short[] input) {
+        int size = network.accumulatorSize;
+        clip(us, input, 0, size);
+        clip(them, input, size, size);
+
+        short[] weights = network.hiddenWeights;
+        int inputs = 2 * size;
+        int end = SHORTS.loopBound(inputs);
+        int output = network.outputBias;
+        for (int n = 0, row = 0; n < network.hiddenSize; n++, row += inputs) {
+            IntVector sums = IntVector.zero(INTS);
+            int i = 0;
+            for (; i < end; i += SHORTS.length()) {
+                ShortVector products = ShortVector.fromArray(SHORTS, input, i)
+                        .mul(ShortVector.fromArray(SHORTS, weights, row + i));
+                sums = sums
+                        .add(products.convertShape(VectorOperators.S2I, INTS, 0))
+                        .add(products.convertShape(VectorOperators.S2I, INTS, 1));
+            }
+            int sum = sums.reduceLanes(VectorOperators.ADD);
+            for (; i < inputs; i++) {
+                sum += input[i] * weights[row + i];
+            }
+            int hidden = (sum + network.hiddenBiases[n]) >> Network.HIDDEN_SHIFT;
+            output += Math.max(0, Math.min(hidden, Network.ACTIVATION_MAX))
+                    * network.outputWeights[n];
+        }
+        return output;
+    }
+
+    /**
+     * clip copies an accumulator into the input clipped to
+     * 0..ACTIVATION_MAX.
+     */
+    private static void clip(short[] from, short[] to, int offset,
+            int length) {
+        int i = 0;
+        for (int end = SHORTS.loopBound(length); i < end;
+                i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, from, i)
+                    .max((short) 0).min(ACTIVATION_MAX)
+                    .intoArray(to, offset + i);
+        }
+        for (; i < length; i++) {
+            to[offset + i] = (short) Math.max(0, Math.min(from[i],
+                    Network.ACTIVATION_MAX));
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector " + SHORTS.vectorBitSize() + " bit";
+    }
+}
@@ -1,10 +1,11 @@
 package GameStart;
 
+import game.PieceImages;
+import game.PieceType;
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
-import javafx.scene.image.Image;
 import javafx.stage.Stage;
 
 /**
@@ -18,7 +19,7 @@ public class ChessIntro extends Application {
         Parent root = FXMLLoader.load(getClass().getResource("EntryFXML.fxml"));
          
        Scene scene = new Scene(root);
-        stage.getIcons().add(new Image("/Images/pawn_black.png"));
+        stage.getIcons().add(PieceImages.get(PieceType.PAWN, false));
         stage.setTitle("Chess");
         stage.setScene(scene);
         stage.show();
@@ -1,16 +1,27 @@
 package chess;
 
 import GameStart.EntryController;
+import engine.Move;
+import engine.MoveList;
+import engine.PgnReader;
+import engine.PgnWriter;
+import java.io.File;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
 import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 /**
@@ -21,6 +32,8 @@ public class SinglePlayerStage extends Parent {
 
     private Stage primaryStage;
     private VBox vbox;
+    private boolean vsComputer;
+    private SingleplayerChess board;
     //private NewGame setup;
 
     public SinglePlayerStage(Stage s) {
@@ -28,6 +41,7 @@ public class SinglePlayerStage extends Parent {
     }
 
     private void exitGame() {
+        closeBoard();
         try {
             System.out.println("NewGame");
             Parent multi = FXMLLoader.load(getClass().getResource("/GameStart/EntryFXML.fxml"));
@@ -39,12 +53,148 @@ public class SinglePlayerStage extends Parent {
         }
     }
 
-    private void newGame() {
+    /**
+     * closeBoard closes the game on the board before it is replaced, so a
+     * game against the computer frees its search threads.
+     */
+    private void closeBoard() {
+        if (board != null) {
+            board.getGame().close();
+            board = null;
+        }
+    }
+
+    /**
+     * showBookMove highlights the opening book's move on the board, or says
+     * there isn't one.
+     */
+    private void showBookMove(SingleplayerChess board) {
+        if (!board.getGame().showBookMove()) {
+            showMessage("Hint", "There is no book move for this position.");
+        }
+    }
+
+    /**
+     * showMessage shows a message over the board.
+     */
+    private void showMessage(String title, String message) {
+        Alert mes = new Alert(Alert.AlertType.INFORMATION);
+        mes.initOwner(primaryStage);
+        mes.setTitle(title);
+        mes.setHeaderText(null);
+        mes.setContentText(message);
+        mes.showAndWait();
+    }
+
+    /**
+     * pgnChooser makes a file chooser for PGN files.
+     */
+    private static FileChooser pgnChooser(String title) {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle(title);
+        chooser.getExtensionFilters().add(
+                new FileChooser.ExtensionFilter("PGN files", "*.pgn"));
+        return chooser;
+    }
+
+    /**
+     * saveGame writes the game on the board to a PGN file.
+     */
+    private void saveGame(SingleplayerChess board) {
+        File file = pgnChooser("Save game").showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        try (PgnWriter writer = new PgnWriter(file.getPath())) {
+            board.getGame().writePgn(writer, "White",
+                    vsComputer ? "Computer" : "Black");
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            showMessage("Save game", "The game could not be saved.");
+        }
+    }
+
+    /**
+     * openGame plays the moves of the first game of a PGN file on a new
+     * board between two people.
+     */
+    private void openGame() {
+        File file = pgnChooser("Open game").showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        MoveList moves = new MoveList();
+        String fen;
+        try (PgnReader reader = new PgnReader(file.getPath())) {
+            if (!reader.nextGame()) {
+                showMessage("Open game", "There is no game in the file.");
+                return;
+            }
+            fen = reader.getTag("FEN");
+            for (int move; (move = reader.nextMove()) != Move.NONE;) {
+                moves.add(move);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            showMessage("Open game", "The game could not be read.");
+            return;
+        }
+        vsComputer = false;
+        primaryStage.setScene(start());
+        try {
+            if (fen != null) {
+                board.getGame().loadFen(fen);
+            }
+            board.getGame().replay(moves);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            showMessage("Open game", "The game could not be read.");
+        }
+        primaryStage.show();
+    }
+
+    /**
+     * loadPosition sets the board up from a FEN the user types in. The
+     * board is reused unless its game is over.
+     */
+    private void loadPosition() {
+        TextInputDialog dialog = new TextInputDialog(
+                board.getGame().getFen());
+        dialog.initOwner(primaryStage);
+        dialog.setTitle("Load position");
+        dialog.setHeaderText(null);
+        dialog.setContentText("FEN:");
+        Optional<String> fen = dialog.showAndWait();
+        if (!fen.isPresent()) {
+            return;
+        }
+        if (!board.getGame().gameAlive.get()) {
+            newGame(vsComputer);
+        }
+        try {
+            board.getGame().loadFen(fen.get());
+        } catch (IllegalArgumentException e) {
+            showMessage("Load position", e.getMessage());
+        }
+    }
+
+    /**
+     * copyPosition puts the FEN of the board on the clipboard.
+     */
+    private void copyPosition() {
+        ClipboardContent content = new ClipboardContent();
+        content.putString(board.getGame().getFen());
+        Clipboard.getSystemClipboard().setContent(content);
+    }
+
+    private void newGame(boolean vsComputer) {
+        this.vsComputer = vsComputer;
         primaryStage.setScene(start());
         primaryStage.show();
     }
 
     public Scene start() {
+        closeBoard();
         vbox = new VBox(0);
         //setup = new NewGame(primaryStage, vbox, user);
 
@@ -57,17 +207,45 @@ public class SinglePlayerStage extends Parent {
 
         MenuItem newMenuItem = new MenuItem("New game");
         menuFile.getItems().add(newMenuItem);
-        newMenuItem.setOnAction(ex -> this.newGame());
+        newMenuItem.setOnAction(ex -> this.newGame(false));
+
+        MenuItem computerMenuItem = new MenuItem("New game against computer");
+        menuFile.getItems().add(computerMenuItem);
+        computerMenuItem.setOnAction(ex -> this.newGame(true));
+
+        MenuItem openMenuItem = new MenuItem("Open game...");
+        menuFile.getItems().add(openMenuItem);
+        openMenuItem.setOnAction(ex -> this.openGame());
+
+        MenuItem saveMenuItem = new MenuItem("Save game...");
+        menuFile.getItems().add(saveMenuItem);
+
+        MenuItem loadMenuItem = new MenuItem("Load position...");
+        menuFile.getItems().add(loadMenuItem);
+        loadMenuItem.setOnAction(ex -> this.loadPosition());
+
+        MenuItem copyMenuItem = new MenuItem("Copy position");
+        menuFile.getItems().add(copyMenuItem);
+        copyMenuItem.setOnAction(ex -> this.copyPosition());
 
         MenuItem exitMenuItem = new MenuItem("Exit to menu");
         menuFile.getItems().add(exitMenuItem);
         exitMenuItem.setOnAction(actionEvent -> exitGame());
 
-        menuBar.getMenus().addAll(menuFile);
+        SingleplayerChess board = new SingleplayerChess(vsComputer);
+        this.board = board;
+        saveMenuItem.setOnAction(ex -> saveGame(board));
+
+        Menu menuHint = new Menu("Hint");
+
+        MenuItem bookMenuItem = new MenuItem("Book move");
+        menuHint.getItems().add(bookMenuItem);
+        bookMenuItem.setOnAction(ex -> showBookMove(board));
+
+        menuBar.getMenus().addAll(menuFile, menuHint);
 
         primaryStage.setOnCloseRequest(actionEvent -> exitGame());
 
-        SingleplayerChess board = new SingleplayerChess();
         vbox.getChildren().add(board);
 
         return scene;
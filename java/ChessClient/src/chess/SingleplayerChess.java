@@ -17,7 +17,26 @@ public class SingleplayerChess extends BorderPane {
      * the center
      */
     public SingleplayerChess() {
-        this.game = new SingleplayerGame();
+        this(false);
+    }
+
+    /**
+     * Constructor that initializes a singleplayer game, either against the
+     * computer or between two people, and sets it to the center
+     *
+     * @param vsComputer whether or not the computer plays black
+     */
+    public SingleplayerChess(boolean vsComputer) {
+        this.game = new SingleplayerGame(vsComputer);
         this.setCenter(game);
     }
+
+    /**
+     * getGame gets the game being played on this board
+     *
+     * @return the game
+     */
+    public SingleplayerGame getGame() {
+        return game;
+    }
 }
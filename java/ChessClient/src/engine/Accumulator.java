@@ -0,0 +1,121 @@
+package engine;
+
+/**
+ * Accumulator keeps the output of a Network's input layer for one position,
+ * once from each side's point of view. Position adds and subtracts the
+ * weights of a piece as it is put, removed and moved, so the input layer is
+ * never run from scratch during a search.
+ *
+ * @author Ben Clark
+ */
+final class Accumulator {
+
+    private final Network network;
+
+    /**
+     * The accumulator seen from each side, indexed by color.
+     */
+    private final short[][] values;
+
+    /**
+     * Room for the clipped accumulators when the network runs.
+     */
+    private final short[] input;
+
+    /**
+     * Constructs an Accumulator for an empty board.
+     *
+     * @param network the network it belongs to
+     */
+    Accumulator(Network network) {
+        this.network = network;
+        this.values = new short[2][network.accumulatorSize];
+        this.input = new short[2 * network.accumulatorSize];
+        reset();
+    }
+
+    /**
+     * reset sets the accumulator to that of an empty board.
+     */
+    void reset() {
+        for (short[] side : values) {
+            System.arraycopy(network.inputBiases, 0, side, 0, side.length);
+        }
+    }
+
+    /**
+     * copyFrom copies another accumulator of the same network.
+     *
+     * @param other the accumulator to copy
+     */
+    void copyFrom(Accumulator other) {
+        for (int color = 0; color < 2; color++) {
+            System.arraycopy(other.values[color], 0, values[color], 0,
+                    values[color].length);
+        }
+    }
+
+    /**
+     * add adds a piece that was put on a square.
+     *
+     * @param piece the piece
+     * @param sq the square
+     */
+    void add(int piece, int sq) {
+        int size = network.accumulatorSize;
+        for (int color = 0; color < 2; color++) {
+            network.kernel.add(values[color], network.inputWeights,
+                    Network.feature(color, piece, sq) * size);
+        }
+    }
+
+    /**
+     * remove takes away a piece that was removed from a square.
+     *
+     * @param piece the piece
+     * @param sq the square
+     */
+    void remove(int piece, int sq) {
+        int size = network.accumulatorSize;
+        for (int color = 0; color < 2; color++) {
+            network.kernel.sub(values[color], network.inputWeights,
+                    Network.feature(color, piece, sq) * size);
+        }
+    }
+
+    /**
+     * move moves a piece from one square to another.
+     *
+     * @param piece the piece
+     * @param from the square it was on
+     * @param to the square it moved to
+     */
+    void move(int piece, int from, int to) {
+        int size = network.accumulatorSize;
+        for (int color = 0; color < 2; color++) {
+            network.kernel.addSub(values[color], network.inputWeights,
+                    Network.feature(color, piece, to) * size,
+                    Network.feature(color, piece, from) * size);
+        }
+    }
+
+    /**
+     * evaluate runs the rest of the network.
+     *
+     * @param sideToMove the color of the side to move
+     * @return the score in centipawns from the side to move's point of view
+     */
+    int evaluate(int sideToMove) {
+        return network.kernel.forward(network, values[sideToMove],
+                values[sideToMove ^ 1], input) / Network.OUTPUT_SCALE;
+    }
+
+    /**
+     * getNetwork gets the network the accumulator belongs to.
+     *
+     * @return the network
+     */
+    Network getNetwork() {
+        return network;
+    }
+}
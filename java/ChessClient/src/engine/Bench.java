@@ -0,0 +1,89 @@
+package engine;
+
+/**
+ * Bench searches a fixed set of positions to a fixed depth, each with a new
+ * search and table so the result only depends on the engine. The total node
+ * count changes whenever the search does, which makes it a quick check that
+ * a change was meant to change the search, and the nodes to reach the depth
+ * and the share of cutoffs from the first move measure the move ordering.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Bench [depth]
+ * </pre>
+ * or bench [depth] from the UCI engine.
+ *
+ * @author Ben Clark
+ */
+public final class Bench {
+
+    /**
+     * The depth searched when none is given.
+     */
+    public static final int DEFAULT_DEPTH = 7;
+
+    private Bench() {
+
+    }
+
+    /**
+     * run searches every position, printing a line for each and the totals.
+     *
+     * @param depth the depth to search to
+     */
+    public static void run(int depth) {
+        Position pos = new Position();
+        long nodes = 0;
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        long time = 0;
+        String[] fens = positions();
+        for (int i = 0; i < fens.length; i++) {
+            Fen.load(pos, fens[i]);
+            Search search = new Search(new TranspositionTable(16));
+            long start = System.nanoTime();
+            int move = search.search(pos, depth, 0, 0);
+            time += System.nanoTime() - start;
+            nodes += search.getNodes();
+            cutoffs += search.getCutoffs();
+            firstMoveCutoffs += search.getFirstMoveCutoffs();
+            System.out.println("Position " + (i + 1) + ": "
+                    + Move.toString(move) + "  " + search.getNodes()
+                    + " nodes");
+        }
+        System.out.println(String.format(
+                "Nodes: %d  Time: %d ms  NPS: %d  First move cutoffs: %.1f%%",
+                nodes, time / 1000000, nodes * 1000000000L / Math.max(1, time),
+                100.0 * firstMoveCutoffs / Math.max(1, cutoffs)));
+    }
+
+    /**
+     * positions gets the bench positions: the start position, the normal
+     * positions of the perft suite and the tactical suite.
+     */
+    private static String[] positions() {
+        String[] fens = new String[7 + Tactics.SUITE.length];
+        for (int i = 0; i < 7; i++) {
+            fens[i] = Perft.SUITE[i][0];
+        }
+        for (int i = 0; i < Tactics.SUITE.length; i++) {
+            fens[7 + i] = Tactics.SUITE[i][0];
+        }
+        return fens;
+    }
+
+    /**
+     * Entry point of the bench.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            run(args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH);
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: Bench [depth]");
+            System.exit(2);
+        }
+    }
+}
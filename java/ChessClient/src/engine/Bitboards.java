@@ -0,0 +1,189 @@
+package engine;
+
+/**
+ * Bitboards holds the attack tables and bit helpers shared by the move
+ * generator and Position. All the tables are built once when the class is
+ * loaded so looking up an attack is a single array read.
+ *
+ * @author Ben Clark
+ */
+public final class Bitboards {
+
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_2 = RANK_1 << 8;
+    public static final long RANK_7 = RANK_1 << 48;
+    public static final long RANK_8 = RANK_1 << 56;
+
+    /**
+     * The dark squares, starting with a1.
+     */
+    public static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;
+
+    /**
+     * Squares a knight on each square attacks.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * Squares a king on each square attacks.
+     */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares a pawn of each color on each square attacks.
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * The squares strictly between two squares that share a line, otherwise
+     * empty.
+     */
+    public static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * The whole line, edge to edge, through two squares that share a line,
+     * otherwise empty.
+     */
+    public static final long[][] LINE = new long[64][64];
+
+    /**
+     * The files next to each file.
+     */
+    public static final long[] ADJACENT_FILES = new long[8];
+
+    /**
+     * The squares in front of a pawn of each color on each square, on its
+     * own file and the files next to it. A pawn with no enemy pawns there is
+     * passed.
+     */
+    public static final long[][] PASSED_PAWN_MASK = new long[2][64];
+
+    /**
+     * The squares one and two ranks in front of a king of each color on each
+     * square, on its own file and the files next to it, where its own pawns
+     * shelter it.
+     */
+    public static final long[][] PAWN_SHIELD = new long[2][64];
+
+    /**
+     * Rays from every square to the edge of the board in the eight directions
+     * of DIRECTION_FILE and DIRECTION_RANK. Only used to build BETWEEN and
+     * LINE, sliding attacks come from Magics.
+     */
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final int[] DIRECTION_FILE = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIRECTION_RANK = {1, 1, 0, -1, -1, -1, 0, 1};
+
+    static {
+        int[][] knightJumps = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2},
+        {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int file = sq & 7;
+            int rank = sq >>> 3;
+            for (int[] jump : knightJumps) {
+                KNIGHT_ATTACKS[sq] |= bit(file + jump[0], rank + jump[1]);
+            }
+            for (int d = 0; d < 8; d++) {
+                KING_ATTACKS[sq] |= bit(file + DIRECTION_FILE[d],
+                        rank + DIRECTION_RANK[d]);
+                for (int f = file + DIRECTION_FILE[d],
+                        r = rank + DIRECTION_RANK[d];
+                        f >= 0 && f < 8 && r >= 0 && r < 8;
+                        f += DIRECTION_FILE[d], r += DIRECTION_RANK[d]) {
+                    RAYS[d][sq] |= 1L << (r * 8 + f);
+                }
+            }
+            PAWN_ATTACKS[Position.WHITE][sq] = bit(file - 1, rank + 1)
+                    | bit(file + 1, rank + 1);
+            PAWN_ATTACKS[Position.BLACK][sq] = bit(file - 1, rank - 1)
+                    | bit(file + 1, rank - 1);
+            for (int f = file - 1; f <= file + 1; f++) {
+                for (int r = rank + 1; r < 8; r++) {
+                    PASSED_PAWN_MASK[Position.WHITE][sq] |= bit(f, r);
+                }
+                for (int r = rank - 1; r >= 0; r--) {
+                    PASSED_PAWN_MASK[Position.BLACK][sq] |= bit(f, r);
+                }
+                PAWN_SHIELD[Position.WHITE][sq] |= bit(f, rank + 1)
+                        | bit(f, rank + 2);
+                PAWN_SHIELD[Position.BLACK][sq] |= bit(f, rank - 1)
+                        | bit(f, rank - 2);
+            }
+        }
+        for (int file = 0; file < 8; file++) {
+            ADJACENT_FILES[file] = (file > 0 ? FILE_A << (file - 1) : 0L)
+                    | (file < 7 ? FILE_A << (file + 1) : 0L);
+        }
+        for (int from = 0; from < 64; from++) {
+            for (int d = 0; d < 8; d++) {
+                long ray = RAYS[d][from];
+                while (ray != 0) {
+                    int to = Long.numberOfTrailingZeros(ray);
+                    ray &= ray - 1;
+                    BETWEEN[from][to] = RAYS[d][from] & RAYS[(d + 4) & 7][to];
+                    LINE[from][to] = RAYS[d][from] | RAYS[(d + 4) & 7][from]
+                            | (1L << from);
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+
+    }
+
+    /**
+     * bit makes a bitboard with one square set, or an empty bitboard if the
+     * file and rank are off of the board.
+     *
+     * @param file the file of the square
+     * @param rank the rank of the square
+     * @return the bitboard
+     */
+    private static long bit(int file, int rank) {
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return 0L;
+        }
+        return 1L << (rank * 8 + file);
+    }
+
+    /**
+     * rookAttacks gets the squares a rook on sq attacks given the occupied
+     * squares of the board. The first blocker in each direction is included.
+     *
+     * @param sq the square of the rook
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long rookAttacks(int sq, long occupied) {
+        return Magics.rookAttacks(sq, occupied);
+    }
+
+    /**
+     * bishopAttacks gets the squares a bishop on sq attacks given the
+     * occupied squares of the board. The first blocker in each direction is
+     * included.
+     *
+     * @param sq the square of the bishop
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long bishopAttacks(int sq, long occupied) {
+        return Magics.bishopAttacks(sq, occupied);
+    }
+
+    /**
+     * queenAttacks gets the squares a queen on sq attacks.
+     *
+     * @param sq the square of the queen
+     * @param occupied every occupied square
+     * @return the attacked squares
+     */
+    public static long queenAttacks(int sq, long occupied) {
+        return Magics.rookAttacks(sq, occupied)
+                | Magics.bishopAttacks(sq, occupied);
+    }
+}
@@ -0,0 +1,317 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Book is an opening book: a file of (key, move, weight) entries sorted by
+ * the Zobrist key of the position the move is played from. A position can
+ * have several entries, one per book move, and a move's weight is how often
+ * it should be played compared to the others, such as how often it was
+ * played in the games the book was built from.
+ *
+ * The file is memory mapped and searched in place, so a probe allocates
+ * nothing and opening a book of hundreds of MB costs no heap. Zobrist keys
+ * are spread evenly over the longs, so the search works out from the number
+ * of entries per key where a key should be rather than halving the range,
+ * and reads about a third as many keys as a binary search would. Reading
+ * a mapped buffer with absolute gets doesn't change it, so one Book can be
+ * probed by any number of threads.
+ *
+ * A book file is little endian: the magic number, the version and the
+ * number of entries, then the entries. Each entry is the key as a long and
+ * the packed move and its weight as ints. The entries are sorted by key as a
+ * signed long, then by move. BookWriter writes the format.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Book file [fen]
+ * </pre>
+ * prints the book moves of a position, the start position by default.
+ *
+ * @author Ben Clark
+ */
+public final class Book {
+
+    /**
+     * The book the window and the engine use when no other is given.
+     */
+    public static final String DEFAULT_FILE = "book.bin";
+
+    /**
+     * The most entries a position can have that probe hands back.
+     */
+    public static final int MAX_ENTRIES = 64;
+
+    static final int MAGIC = 0x4B4F4F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+    static final int ENTRY_BYTES = 16;
+
+    /**
+     * A mapped buffer can't be bigger than 2 GB, so the entries are mapped
+     * in segments of 2^SEGMENT_SHIFT entries.
+     */
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    /**
+     * Ranges this small are finished with a binary search, and a search
+     * that hasn't got there after this many guesses, because the keys
+     * aren't spread evenly, falls back to one.
+     */
+    private static final int BINARY_RANGE = 16;
+    private static final int MAX_GUESSES = 8;
+
+    private final MappedByteBuffer[] segments;
+    private final long size;
+    private final long firstKey;
+    private final long lastKey;
+
+    /**
+     * Entries per unit of key, which turns the distance to a key into a
+     * number of entries.
+     */
+    private final double density;
+
+    private Book(MappedByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+        firstKey = size > 0 ? key(0) : 0;
+        lastKey = size > 0 ? key(size - 1) : 0;
+        density = lastKey > firstKey
+                ? (size - 1) / ((double) lastKey - firstKey) : 0;
+    }
+
+    /**
+     * open maps a book file. The channel is closed again, the mapping stays
+     * until the Book is garbage collected.
+     *
+     * @param file the book file
+     * @return the book
+     * @throws IOException if the file can't be read or is not a book
+     */
+    public static Book open(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a book file: " + file);
+            }
+            MappedByteBuffer header = channel.map(
+                    FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a book file: " + file);
+            }
+            long size = header.getLong();
+            if (size < 0 || channel.size() != HEADER_BYTES
+                    + size * ENTRY_BYTES) {
+                throw new IOException("Book file has the wrong size: "
+                        + file);
+            }
+            int count = (int) ((size + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long first = (long) i << SEGMENT_SHIFT;
+                long entries = Math.min(size - first, SEGMENT_MASK + 1);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + first * ENTRY_BYTES,
+                        entries * ENTRY_BYTES);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new Book(segments, size);
+        }
+    }
+
+    /**
+     * size gets the number of entries in the book.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * probe copies the entries of a position into moves and weights.
+     *
+     * @param key the Zobrist key of the position
+     * @param moves where the packed moves go, at least MAX_ENTRIES long
+     * @param weights where the weights go, at least MAX_ENTRIES long
+     * @return the number of entries, 0 if the position is not in the book
+     */
+    public int probe(long key, int[] moves, int[] weights) {
+        int count = 0;
+        for (long i = lowerBound(key); i < size && count < MAX_ENTRIES
+                && key(i) == key; i++) {
+            MappedByteBuffer segment = segments[(int) (i >>> SEGMENT_SHIFT)];
+            int offset = (int) (i & SEGMENT_MASK) * ENTRY_BYTES;
+            moves[count] = segment.getInt(offset + 8);
+            weights[count] = segment.getInt(offset + 12);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * pick chooses a book move for a position at random, each move as likely
+     * as its share of the weights. Entries that aren't legal in the position,
+     * such as from a key collision, are left out.
+     *
+     * @param pos the position
+     * @param random where the choice comes from
+     * @return the packed move or Move.NONE if the position has no book move
+     */
+    public int pick(Position pos, Random random) {
+        int[] moves = new int[MAX_ENTRIES];
+        int[] weights = new int[MAX_ENTRIES];
+        int count = legalEntries(pos, moves, weights);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total <= 0) {
+            return count > 0 ? moves[random.nextInt(count)] : Move.NONE;
+        }
+        long ticket = (long) (random.nextDouble() * total);
+        for (int i = 0; i < count; i++) {
+            ticket -= weights[i];
+            if (ticket < 0) {
+                return moves[i];
+            }
+        }
+        return moves[count - 1];
+    }
+
+    /**
+     * best gets the book move of a position with the highest weight.
+     *
+     * @param pos the position
+     * @return the packed move or Move.NONE if the position has no book move
+     */
+    public int best(Position pos) {
+        int[] moves = new int[MAX_ENTRIES];
+        int[] weights = new int[MAX_ENTRIES];
+        int count = legalEntries(pos, moves, weights);
+        int best = Move.NONE;
+        int bestWeight = -1;
+        for (int i = 0; i < count; i++) {
+            if (weights[i] > bestWeight) {
+                best = moves[i];
+                bestWeight = weights[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * legalEntries probes the book for a position and keeps the entries
+     * whose moves are legal in it.
+     *
+     * @param pos the position
+     * @param moves where the packed moves go, at least MAX_ENTRIES long
+     * @param weights where the weights go, at least MAX_ENTRIES long
+     * @return the number of entries kept
+     */
+    public int legalEntries(Position pos, int[] moves, int[] weights) {
+        int count = probe(pos.getKey(), moves, weights);
+        int[] pieceMoves = new int[MoveGenerator.MAX_PIECE_MOVES];
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (MoveGenerator.isLegal(pos, moves[i], pieceMoves)) {
+                moves[kept] = moves[i];
+                weights[kept] = weights[i];
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * lowerBound finds the first entry whose key is not below key. Each
+     * guess is moved by the distance from the key it read to the one it is
+     * after, plus a little more, so the guesses soon land on both sides of
+     * the key and the range left is finished with a binary search.
+     */
+    private long lowerBound(long key) {
+        if (size == 0 || key <= firstKey) {
+            return 0;
+        } else if (key > lastKey) {
+            return size;
+        }
+        long low = 0;
+        long high = size;
+        //Doubles keep the order of the keys without overflowing
+        long guess = (long) (((double) key - firstKey) * density);
+        for (int guesses = 0; guesses < MAX_GUESSES
+                && high - low > BINARY_RANGE; guesses++) {
+            guess = Math.max(low, Math.min(guess, high - 1));
+            long guessKey = key(guess);
+            long step = (long) (((double) key - guessKey) * density);
+            if (guessKey < key) {
+                low = guess + 1;
+                guess += step + BINARY_RANGE / 2;
+            } else {
+                high = guess;
+                guess += step - BINARY_RANGE / 2;
+            }
+        }
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (key(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * key reads the key of an entry.
+     */
+    private long key(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)]
+                .getLong((int) (index & SEGMENT_MASK) * ENTRY_BYTES);
+    }
+
+    /**
+     * Entry point of the book viewer.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 1) {
+                throw new IllegalArgumentException("Missing file");
+            }
+            Book book = open(args[0]);
+            Position pos = new Position();
+            if (args.length > 1) {
+                StringBuilder fen = new StringBuilder(args[1]);
+                for (int i = 2; i < args.length; i++) {
+                    fen.append(' ').append(args[i]);
+                }
+                Fen.load(pos, fen.toString());
+            }
+            int[] moves = new int[MAX_ENTRIES];
+            int[] weights = new int[MAX_ENTRIES];
+            int count = book.legalEntries(pos, moves, weights);
+            System.out.println(book.size() + " entries, " + count
+                    + " book moves");
+            for (int i = 0; i < count; i++) {
+                System.out.println(Move.toString(moves[i]) + " "
+                        + weights[i]);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: Book file [fen]");
+            System.exit(2);
+        }
+    }
+}
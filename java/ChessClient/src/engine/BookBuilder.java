@@ -0,0 +1,711 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BookBuilder builds an opening Book out of PGN files by counting how often
+ * every move was played from every position in the first plies of the
+ * games. The count becomes the weight of the move.
+ *
+ * The files are read in chunks that end between two games. Each chunk is
+ * parsed and its games replayed on a fork-join pool, and the (position,
+ * move) pairs it finds are added to one of SHARDS primitive hash maps by
+ * the top bits of the position's key, so the threads seldom want the same
+ * map. A map that reaches its share of the memory limit is sorted and
+ * spilled to a run file. At the end every shard's runs are merged, and
+ * since a shard holds one range of keys the shards are written to the book
+ * one after the other. The memory used is the maps, which are capped, and a
+ * few chunks waiting for a thread, however big the input is.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.BookBuilder [-plies n] [-min n]
+ *         [-threads n] [-memory mb] [-tmp dir] book.bin games.pgn...
+ * </pre>
+ * -plies is how deep into each game moves are counted, -min the fewest
+ * times a move must have been played to go in the book and -memory the MB
+ * the hash maps may use before they spill to the -tmp directory.
+ *
+ * @author Ben Clark
+ */
+public final class BookBuilder {
+
+    /**
+     * How many plies of each game are counted when no -plies is given.
+     */
+    public static final int DEFAULT_PLIES = 24;
+
+    private static final int DEFAULT_MEMORY = 256;
+
+    /**
+     * The size PGN is read in. A chunk only grows past it for a game that
+     * doesn't fit.
+     */
+    private static final int CHUNK_BYTES = 4 << 20;
+
+    /**
+     * Chunks read ahead of the threads per thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 2;
+
+    private static final int SHARD_BITS = 6;
+    private static final int SHARDS = 1 << SHARD_BITS;
+
+    /**
+     * A map slot is a key, a move and a count.
+     */
+    private static final int SLOT_BYTES = 16;
+    private static final int MIN_SLOTS = 1024;
+
+    /**
+     * How often progress is printed, in games.
+     */
+    private static final int REPORT_INTERVAL = 100000;
+
+    private final int maxPlies;
+    private final int minCount;
+    private final int threads;
+    private final Path tmp;
+    private final Shard[] shards = new Shard[SHARDS];
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong pairs = new AtomicLong();
+    private final AtomicLong runCount = new AtomicLong();
+    private long startTime;
+
+    /**
+     * The first error of a thread, which stops the build.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Constructs a BookBuilder.
+     *
+     * @param maxPlies how many plies of each game are counted
+     * @param minCount the fewest times a move must be played to go in
+     * @param threads the threads that parse games
+     * @param memoryMegabytes the memory the hash maps may use
+     * @param tmp the directory run files are spilled to
+     */
+    public BookBuilder(int maxPlies, int minCount, int threads,
+            int memoryMegabytes, Path tmp) {
+        this.maxPlies = maxPlies;
+        this.minCount = minCount;
+        this.threads = threads;
+        this.tmp = tmp;
+        long slots = (long) memoryMegabytes * 1024 * 1024 / SHARDS
+                / SLOT_BYTES;
+        int maxSlots = (int) Math.max(MIN_SLOTS,
+                Long.highestOneBit(Math.min(slots, 1 << 30)));
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(maxSlots);
+        }
+    }
+
+    /**
+     * build counts the moves of every game in the PGN files and writes the
+     * book.
+     *
+     * @param book the book file to write
+     * @param files the PGN files
+     * @throws IOException if a file can't be read or written
+     */
+    public void build(String book, List<String> files) throws IOException {
+        startTime = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        Semaphore permits = new Semaphore(threads * CHUNKS_PER_THREAD);
+        try {
+            for (String file : files) {
+                readFile(file, pool, permits);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted", e);
+        } finally {
+            pool.shutdown();
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        long entries = merge(book);
+        long millis = Math.max(1, (System.nanoTime() - startTime) / 1000000);
+        System.out.println(String.format("Games: %d  Errors: %d  Moves: %d"
+                + "  Entries: %d  Runs: %d  Time: %d ms  Games/s: %d",
+                games.get(), errors.get(), pairs.get(), entries,
+                runCount.get(), millis, games.get() * 1000 / millis));
+    }
+
+    /**
+     * readFile reads a PGN file in chunks that end where a game starts and
+     * hands each chunk to the pool. It waits for a thread to finish a chunk
+     * when enough are waiting.
+     */
+    private void readFile(String file, ForkJoinPool pool, Semaphore permits)
+            throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ)) {
+            byte[] chunk = new byte[CHUNK_BYTES];
+            int length = 0;
+            while (failure == null) {
+                if (length == chunk.length) {
+                    //A game bigger than a chunk
+                    chunk = Arrays.copyOf(chunk, chunk.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(chunk, length,
+                        chunk.length - length));
+                if (read < 0) {
+                    if (length > 0) {
+                        submit(chunk, length, pool, permits);
+                    }
+                    return;
+                }
+                length += read;
+                int cut = length < chunk.length ? -1
+                        : lastGameStart(chunk, length);
+                if (cut > 0) {
+                    byte[] next = new byte[Math.max(CHUNK_BYTES,
+                            length - cut)];
+                    System.arraycopy(chunk, cut, next, 0, length - cut);
+                    submit(chunk, cut, pool, permits);
+                    chunk = next;
+                    length -= cut;
+                }
+            }
+        }
+    }
+
+    /**
+     * submit parses a chunk on the pool once there is room for it.
+     */
+    private void submit(byte[] chunk, int length, ForkJoinPool pool,
+            Semaphore permits) throws InterruptedException {
+        permits.acquire();
+        pool.execute(() -> {
+            try {
+                parseChunk(chunk, length);
+            } catch (UncheckedIOException e) {
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * lastGameStart finds the last tag line that starts a game: a line that
+     * starts with [ after a line that doesn't.
+     *
+     * @return the index of the [ or -1 if there is none
+     */
+    private static int lastGameStart(byte[] text, int length) {
+        for (int i = length - 1; i > 0; i--) {
+            if (text[i] != '[' || text[i - 1] != '\n') {
+                continue;
+            }
+            int line = i - 1;
+            while (line > 0 && text[line - 1] != '\n') {
+                line--;
+            }
+            if (text[line] != '[') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * parseChunk replays the games of a chunk and adds the moves of their
+     * first maxPlies plies to the shards.
+     */
+    private void parseChunk(byte[] text, int length) {
+        PgnReader reader = new PgnReader(text, length);
+        Position pos = reader.getPosition();
+        Pairs found = new Pairs();
+        long chunkErrors = 0;
+        try {
+            while (reader.nextGame()) {
+                try {
+                    while (pos.getPly() < maxPlies) {
+                        long key = pos.getKey();
+                        int move = reader.nextMove();
+                        if (move == Move.NONE) {
+                            break;
+                        }
+                        found.add(key, move);
+                    }
+                } catch (IllegalArgumentException e) {
+                    chunkErrors++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long chunkGames = reader.getGames();
+        addToShards(found);
+        errors.addAndGet(chunkErrors);
+        pairs.addAndGet(found.size);
+        long total = games.addAndGet(chunkGames);
+        if (total / REPORT_INTERVAL != (total - chunkGames) / REPORT_INTERVAL) {
+            long millis = Math.max(1,
+                    (System.nanoTime() - startTime) / 1000000);
+            System.out.println(String.format("Games: %d  Games/s: %d",
+                    total, total * 1000 / millis));
+        }
+    }
+
+    /**
+     * addToShards sorts the pairs of a chunk by shard, then adds each
+     * shard's pairs while holding its lock once.
+     */
+    private void addToShards(Pairs found) {
+        int[] starts = new int[SHARDS + 1];
+        for (int i = 0; i < found.size; i++) {
+            starts[shardOf(found.keys[i]) + 1]++;
+        }
+        for (int s = 0; s < SHARDS; s++) {
+            starts[s + 1] += starts[s];
+        }
+        long[] keys = new long[found.size];
+        int[] moves = new int[found.size];
+        int[] next = Arrays.copyOf(starts, SHARDS);
+        for (int i = 0; i < found.size; i++) {
+            int at = next[shardOf(found.keys[i])]++;
+            keys[at] = found.keys[i];
+            moves[at] = found.moves[i];
+        }
+        for (int s = 0; s < SHARDS; s++) {
+            if (starts[s] < starts[s + 1]) {
+                shards[s].addAll(keys, moves, starts[s], starts[s + 1]);
+            }
+        }
+    }
+
+    /**
+     * shardOf gets the shard of a key. Flipping the sign bit makes the
+     * shards follow the book's signed order of the keys.
+     */
+    private static int shardOf(long key) {
+        return (int) ((key ^ Long.MIN_VALUE) >>> (64 - SHARD_BITS));
+    }
+
+    /**
+     * merge writes the book: each shard's remaining pairs are spilled, then
+     * its runs are merged, adding up the counts of a pair that is in more
+     * than one, and the shards are written in order.
+     *
+     * @return the number of entries written
+     */
+    private long merge(String book) throws IOException {
+        try (BookWriter writer = new BookWriter(book)) {
+            for (Shard shard : shards) {
+                shard.spill();
+                List<RunReader> readers = new ArrayList<>();
+                PriorityQueue<RunReader> queue = new PriorityQueue<>(
+                        Math.max(1, shard.runs.size()), RunReader::compareTo);
+                try {
+                    for (Path run : shard.runs) {
+                        RunReader reader = new RunReader(run);
+                        readers.add(reader);
+                        if (reader.next()) {
+                            queue.add(reader);
+                        }
+                    }
+                    mergeRuns(queue, writer);
+                } finally {
+                    for (RunReader reader : readers) {
+                        reader.close();
+                    }
+                    for (Path run : shard.runs) {
+                        Files.deleteIfExists(run);
+                    }
+                }
+            }
+            return writer.size();
+        }
+    }
+
+    /**
+     * mergeRuns writes the pairs of the runs in order with their counts
+     * added up.
+     */
+    private void mergeRuns(PriorityQueue<RunReader> queue,
+            BookWriter writer) throws IOException {
+        while (!queue.isEmpty()) {
+            RunReader first = queue.poll();
+            long key = first.key;
+            int move = first.move;
+            long count = first.count;
+            if (first.next()) {
+                queue.add(first);
+            }
+            while (!queue.isEmpty() && queue.peek().key == key
+                    && queue.peek().move == move) {
+                RunReader same = queue.poll();
+                count += same.count;
+                if (same.next()) {
+                    queue.add(same);
+                }
+            }
+            if (count >= minCount) {
+                writer.add(key, move, (int) Math.min(count,
+                        Integer.MAX_VALUE));
+            }
+        }
+    }
+
+    /**
+     * Pairs is a growable list of (key, move) pairs found in one chunk.
+     */
+    private static final class Pairs {
+
+        long[] keys = new long[4096];
+        int[] moves = new int[4096];
+        int size;
+
+        void add(long key, int move) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                moves = Arrays.copyOf(moves, size * 2);
+            }
+            keys[size] = key;
+            moves[size] = move;
+            size++;
+        }
+    }
+
+    /**
+     * Shard is an open addressing hash map from (key, move) pairs to counts
+     * in primitive arrays. It doubles until it reaches maxSlots, then spills
+     * to a run whenever it is half full.
+     */
+    private final class Shard {
+
+        private final int maxSlots;
+        private long[] keys;
+        private int[] moves;
+        private int[] counts;
+        private int size;
+        final List<Path> runs = new ArrayList<>();
+
+        Shard(int maxSlots) {
+            this.maxSlots = maxSlots;
+            allocate(Math.min(MIN_SLOTS, maxSlots));
+        }
+
+        /**
+         * addAll counts the pairs from start to end.
+         */
+        synchronized void addAll(long[] pairKeys, int[] pairMoves, int start,
+                int end) {
+            for (int i = start; i < end; i++) {
+                if (size >= counts.length / 2) {
+                    if (counts.length < maxSlots) {
+                        grow();
+                    } else {
+                        try {
+                            spill();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                }
+                add(pairKeys[i], pairMoves[i], 1);
+            }
+        }
+
+        /**
+         * add adds to the count of a pair.
+         */
+        private void add(long key, int move, int count) {
+            int mask = counts.length - 1;
+            int slot = slot(key, move) & mask;
+            while (counts[slot] != 0) {
+                if (keys[slot] == key && moves[slot] == move) {
+                    counts[slot] += count;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            moves[slot] = move;
+            counts[slot] = count;
+            size++;
+        }
+
+        /**
+         * slot hashes a pair. The top bits of the key are the same for the
+         * whole shard, so the low ones are mixed in.
+         */
+        private int slot(long key, int move) {
+            long hash = (key ^ move) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32);
+        }
+
+        /**
+         * grow doubles the map.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldMoves = moves;
+            int[] oldCounts = counts;
+            allocate(counts.length * 2);
+            for (int i = 0; i < oldCounts.length; i++) {
+                if (oldCounts[i] != 0) {
+                    add(oldKeys[i], oldMoves[i], oldCounts[i]);
+                }
+            }
+        }
+
+        private void allocate(int slots) {
+            keys = new long[slots];
+            moves = new int[slots];
+            counts = new int[slots];
+            size = 0;
+        }
+
+        /**
+         * spill sorts the pairs into a run file and empties the map.
+         */
+        synchronized void spill() throws IOException {
+            if (size == 0) {
+                return;
+            }
+            //Pack the used slots into the front, then sort them
+            int used = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    keys[used] = keys[i];
+                    moves[used] = moves[i];
+                    counts[used] = counts[i];
+                    used++;
+                }
+            }
+            sort(keys, moves, counts, 0, used - 1);
+            Path run = Files.createTempFile(tmp, "book", ".run");
+            runs.add(run);
+            runCount.incrementAndGet();
+            try (BookWriter writer = new BookWriter(run.toString())) {
+                for (int i = 0; i < used; i++) {
+                    writer.add(keys[i], moves[i], counts[i]);
+                }
+            }
+            Arrays.fill(counts, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * sort sorts pairs and their counts by key as a signed long, then by
+     * move, with a quicksort that finishes small ranges with an insertion
+     * sort.
+     */
+    private static void sort(long[] keys, int[] moves, int[] counts, int low,
+            int high) {
+        while (high - low > 16) {
+            int middle = (low + high) >>> 1;
+            long pivotKey = keys[middle];
+            int pivotMove = moves[middle];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (compare(keys[i], moves[i], pivotKey, pivotMove) < 0) {
+                    i++;
+                }
+                while (compare(keys[j], moves[j], pivotKey, pivotMove) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, moves, counts, i++, j--);
+                }
+            }
+            //Recurse into the smaller side so the stack stays shallow
+            if (j - low < high - i) {
+                sort(keys, moves, counts, low, j);
+                low = i;
+            } else {
+                sort(keys, moves, counts, i, high);
+                high = j;
+            }
+        }
+        for (int i = low + 1; i <= high; i++) {
+            for (int j = i; j > low && compare(keys[j], moves[j],
+                    keys[j - 1], moves[j - 1]) < 0; j--) {
+                swap(keys, moves, counts, j, j - 1);
+            }
+        }
+    }
+
+    private static int compare(long key, int move, long otherKey,
+            int otherMove) {
+        int byKey = Long.compare(key, otherKey);
+        return byKey != 0 ? byKey : Integer.compare(move, otherMove);
+    }
+
+    private static void swap(long[] keys, int[] moves, int[] counts, int i,
+            int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+    }
+
+    /**
+     * RunReader reads the entries of a run file in order through a small
+     * buffer.
+     */
+    private static final class RunReader implements Closeable,
+            Comparable<RunReader> {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        private long remaining;
+        long key;
+        int move;
+        int count;
+
+        RunReader(Path run) throws IOException {
+            channel = FileChannel.open(run, StandardOpenOption.READ);
+            buffer.limit(0);
+            fill(Book.HEADER_BYTES);
+            if (buffer.getInt() != Book.MAGIC
+                    || buffer.getInt() != Book.VERSION) {
+                channel.close();
+                throw new IOException("Not a run file: " + run);
+            }
+            remaining = buffer.getLong();
+        }
+
+        /**
+         * next reads the next entry.
+         *
+         * @return false at the end of the run
+         */
+        boolean next() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            fill(Book.ENTRY_BYTES);
+            key = buffer.getLong();
+            move = buffer.getInt();
+            count = buffer.getInt();
+            remaining--;
+            return true;
+        }
+
+        /**
+         * fill reads until the buffer has at least bytes left in it.
+         */
+        private void fill(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Run file ends early");
+                }
+            }
+            buffer.flip();
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            return compare(key, move, other.key, other.move);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Entry point of the book builder.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int plies = DEFAULT_PLIES;
+            int min = 1;
+            int threads = Runtime.getRuntime().availableProcessors();
+            int memory = DEFAULT_MEMORY;
+            String tmp = System.getProperty("java.io.tmpdir");
+            List<String> files = new ArrayList<>();
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (!option.startsWith("-")) {
+                    files.add(option);
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for "
+                            + option);
+                }
+                switch (option) {
+                    case "-plies":
+                        plies = Integer.parseInt(args[++i]);
+                        break;
+                    case "-min":
+                        min = Integer.parseInt(args[++i]);
+                        break;
+                    case "-threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-memory":
+                        memory = Integer.parseInt(args[++i]);
+                        break;
+                    case "-tmp":
+                        tmp = args[++i];
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: "
+                                + option);
+                }
+            }
+            if (files.size() < 2) {
+                throw new IllegalArgumentException("Missing book or PGN file");
+            }
+            new BookBuilder(Math.max(1, plies), Math.max(1, min),
+                    Math.max(1, threads), Math.max(1, memory),
+                    Paths.get(tmp)).build(files.get(0),
+                    files.subList(1, files.size()));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: BookBuilder [-plies n] [-min n]"
+                    + " [-threads n] [-memory mb] [-tmp dir] book.bin"
+                    + " games.pgn...");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * BookWriter writes a Book file one entry at a time through a small buffer,
+ * so a book can be written from sorted runs much bigger than the heap. The
+ * entries have to be added in the book's order, by key as a signed long then
+ * by move, and the number of entries is filled in when it is closed.
+ *
+ * @author Ben Clark
+ */
+public final class BookWriter implements Closeable {
+
+    private static final int BUFFER_ENTRIES = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(
+            BUFFER_ENTRIES * Book.ENTRY_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long size;
+    private long lastKey;
+    private int lastMove;
+
+    /**
+     * Constructs a BookWriter that writes a new book over file.
+     *
+     * @param file the book file
+     * @throws IOException if the file can't be written
+     */
+    public BookWriter(String file) throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        channel.position(Book.HEADER_BYTES);
+    }
+
+    /**
+     * add writes an entry.
+     *
+     * @param key the Zobrist key of the position
+     * @param move the packed move
+     * @param weight how often to play the move compared to the others
+     * @throws IOException if the file can't be written
+     * @throws IllegalArgumentException if the entry is out of order
+     */
+    public void add(long key, int move, int weight) throws IOException {
+        if (size > 0 && (key < lastKey
+                || (key == lastKey && move <= lastMove))) {
+            throw new IllegalArgumentException("Book entry out of order: "
+                    + Long.toHexString(key) + " " + Move.toString(move));
+        }
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putLong(key).putInt(move).putInt(weight);
+        lastKey = key;
+        lastMove = move;
+        size++;
+    }
+
+    /**
+     * size gets the number of entries written so far.
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * flush writes the buffered entries to the file.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * close writes the last entries and the header.
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer header = ByteBuffer.allocate(Book.HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(Book.MAGIC).putInt(Book.VERSION).putLong(size);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package engine;
+
+/**
+ * Evaluation scores a position in centipawns from the side to move's point of
+ * view. The score is the material of each side plus a bonus for every piece
+ * from its piece-square table, which rewards pawns for advancing, knights
+ * and bishops for centralising and the king for staying sheltered.
+ *
+ * Every piece has a midgame and an endgame score, and the two are blended by
+ * Position.phase() so that, for example, the king hides early on and walks to
+ * the centre once the queens are gone. Both scores are packed into one int
+ * by pair, so a single addition updates them together. Position keeps the
+ * sum of them up to date as moves are made and taken back, and evaluate
+ * only has to add the terms that depend on more than one piece.
+ *
+ * The pawn structure terms only depend on where the pawns are, so a search
+ * looks them up in a PawnTable by the pawn key instead of working them out
+ * at every node.
+ *
+ * @author Ben Clark
+ */
+public final class Evaluation {
+
+    /**
+     * The value of each type in centipawns. The king is never traded so it
+     * is worth nothing.
+     */
+    public static final int[] VALUE = {100, 320, 330, 500, 900, 0};
+
+    /**
+     * The value of each type once most pieces are off the board, where pawns
+     * are closer to queening and rooks have open files.
+     */
+    private static final int[] ENDGAME_VALUE = {130, 300, 320, 530, 940, 0};
+
+    /**
+     * The most a network can score a position, which keeps it clear of mate
+     * scores.
+     */
+    private static final int MAX_SCORE = 10000;
+
+    /**
+     * The bonus for keeping both bishops.
+     */
+    private static final int BISHOP_PAIR = pair(30, 50);
+
+    /**
+     * The penalty for every pawn behind another pawn on its file.
+     */
+    private static final int DOUBLED_PAWN = pair(-10, -25);
+
+    /**
+     * The penalty for a pawn with no pawns of its own on the files next to
+     * it.
+     */
+    private static final int ISOLATED_PAWN = pair(-10, -15);
+
+    /**
+     * The bonus for a passed pawn by how many ranks it has advanced.
+     */
+    private static final int[] PASSED_PAWN = {
+        pair(0, 0), pair(5, 10), pair(10, 20), pair(15, 35),
+        pair(25, 60), pair(40, 100), pair(60, 150), pair(0, 0)
+    };
+
+    /**
+     * The bonus for each pawn sheltering the king. A bare king only matters
+     * while there are pieces to attack it, so it is only scored in the
+     * midgame.
+     */
+    private static final int PAWN_SHIELD = pair(12, 0);
+
+    /**
+     * Midgame piece-square tables from white's point of view, written with a8
+     * first so they read like a board. Black looks them up with the square
+     * mirrored vertically.
+     */
+    private static final int[][] TABLES = {
+        {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+        },
+        {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+        },
+        {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+        },
+        {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0
+        },
+        {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20
+        },
+        {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+        }
+    };
+
+    /**
+     * Endgame piece-square tables, laid out like TABLES. Only pawns and the
+     * king play differently enough in the endgame to need their own, the
+     * other types use their midgame table.
+     */
+    private static final int[][] ENDGAME_TABLES = {
+        {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            15, 15, 15, 15, 15, 15, 15, 15,
+            5, 5, 5, 5, 5, 5, 5, 5,
+            0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0
+        },
+        TABLES[Position.KNIGHT],
+        TABLES[Position.BISHOP],
+        TABLES[Position.ROOK],
+        TABLES[Position.QUEEN],
+        {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+        }
+    };
+
+    /**
+     * The value plus table bonus of every piece on every square, indexed by
+     * Position.piece(color, type) then square, from white's point of view.
+     * Each entry holds the midgame and endgame scores packed by pair.
+     */
+    static final int[][] PIECE_SQUARE = new int[12][64];
+
+    static {
+        for (int type = Position.PAWN; type <= Position.KING; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                //The tables start at a8 so white flips the rank
+                int score = pair(VALUE[type] + TABLES[type][sq ^ 56],
+                        ENDGAME_VALUE[type] + ENDGAME_TABLES[type][sq ^ 56]);
+                PIECE_SQUARE[Position.piece(Position.WHITE, type)][sq] = score;
+                PIECE_SQUARE[Position.piece(Position.BLACK, type)][sq ^ 56] =
+                        -score;
+            }
+        }
+    }
+
+    private Evaluation() {
+
+    }
+
+    /**
+     * pair packs a midgame and an endgame score into one int. Pairs can be
+     * added, subtracted and negated like plain ints.
+     *
+     * @param midgame the midgame score
+     * @param endgame the endgame score
+     * @return the packed scores
+     */
+    public static int pair(int midgame, int endgame) {
+        return (midgame << 16) + endgame;
+    }
+
+    /**
+     * midgame unpacks the midgame score of a pair.
+     *
+     * @param pair the packed scores
+     * @return the midgame score
+     */
+    public static int midgame(int pair) {
+        return (pair + 0x8000) >> 16;
+    }
+
+    /**
+     * endgame unpacks the endgame score of a pair.
+     *
+     * @param pair the packed scores
+     * @return the endgame score
+     */
+    public static int endgame(int pair) {
+        return (short) pair;
+    }
+
+    /**
+     * evaluate scores a position from the piece-square score Position keeps
+     * up to date, adding the terms that can't be kept per piece. A position
+     * with a Network is scored by the network instead.
+     *
+     * @param pos the position to score
+     * @return the score in centipawns, positive when the side to move is
+     * better
+     */
+    public static int evaluate(Position pos) {
+        return evaluate(pos, null);
+    }
+
+    /**
+     * evaluate scores a position, looking the pawn structure up in a pawn
+     * table.
+     *
+     * @param pos the position to score
+     * @param pawns the pawn table or null to work the pawn structure out
+     * @return the score in centipawns, positive when the side to move is
+     * better
+     */
+    public static int evaluate(Position pos, PawnTable pawns) {
+        Accumulator accumulator = pos.getAccumulator();
+        if (accumulator != null) {
+            int score = accumulator.evaluate(pos.getSideToMove());
+            return Math.max(-MAX_SCORE, Math.min(score, MAX_SCORE));
+        }
+        int score = pos.getPsq();
+        score += pawns != null ? pawns.probe(pos) : pawnStructure(pos);
+        score += pawnShield(pos, Position.WHITE)
+                - pawnShield(pos, Position.BLACK);
+        if (pos.pieceCount(Position.WHITE, Position.BISHOP) >= 2) {
+            score += BISHOP_PAIR;
+        }
+        if (pos.pieceCount(Position.BLACK, Position.BISHOP) >= 2) {
+            score -= BISHOP_PAIR;
+        }
+        int phase = pos.phase();
+        int tapered = (midgame(score) * phase
+                + endgame(score) * (Position.MAX_PHASE - phase))
+                / Position.MAX_PHASE;
+        return pos.getSideToMove() == Position.WHITE ? tapered : -tapered;
+    }
+
+    /**
+     * pawnStructure scores the doubled, isolated and passed pawns of both
+     * sides. It only looks at the pawns, which is what lets PawnTable keep
+     * the score by the pawn key.
+     *
+     * @param pos the position to score
+     * @return the midgame and endgame scores from white's point of view,
+     * packed by pair
+     */
+    static int pawnStructure(Position pos) {
+        return pawnStructure(pos, Position.WHITE)
+                - pawnStructure(pos, Position.BLACK);
+    }
+
+    /**
+     * pawnStructure scores the pawns of one side.
+     */
+    private static int pawnStructure(Position pos, int color) {
+        long own = pos.pieces(color, Position.PAWN);
+        long enemy = pos.pieces(color ^ 1, Position.PAWN);
+        int score = 0;
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(own & (Bitboards.FILE_A << file));
+            if (count > 1) {
+                score += (count - 1) * DOUBLED_PAWN;
+            }
+            if (count > 0 && (own & Bitboards.ADJACENT_FILES[file]) == 0) {
+                score += count * ISOLATED_PAWN;
+            }
+        }
+        for (long bb = own; bb != 0; bb &= bb - 1) {
+            int sq = Long.numberOfTrailingZeros(bb);
+            if ((Bitboards.PASSED_PAWN_MASK[color][sq] & enemy) == 0) {
+                int rank = color == Position.WHITE ? sq >>> 3 : 7 - (sq >>> 3);
+                score += PASSED_PAWN[rank];
+            }
+        }
+        return score;
+    }
+
+    /**
+     * pawnShield scores the pawns in front of one side's king. It depends
+     * on where the king is, so it is not kept in the pawn table.
+     */
+    private static int pawnShield(Position pos, int color) {
+        long king = pos.pieces(color, Position.KING);
+        if (king == 0) {
+            return 0;
+        }
+        int sq = Long.numberOfTrailingZeros(king);
+        return Long.bitCount(Bitboards.PAWN_SHIELD[color][sq]
+                & pos.pieces(color, Position.PAWN)) * PAWN_SHIELD;
+    }
+
+    /**
+     * scan adds up the piece-square score by looking at every piece on the
+     * board, which is what Position saves evaluate from doing. It gives the
+     * same result as Position.getPsq and is kept to check and benchmark the
+     * incremental score against.
+     *
+     * @param pos the position to score
+     * @return the midgame and endgame scores from white's point of view,
+     * packed by pair
+     */
+    public static int scan(Position pos) {
+        int score = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            long bb = pos.pieces(Position.colorOf(piece),
+                    Position.typeOf(piece));
+            while (bb != 0) {
+                score += PIECE_SQUARE[piece][Long.numberOfTrailingZeros(bb)];
+                bb &= bb - 1;
+            }
+        }
+        return score;
+    }
+}
@@ -0,0 +1,215 @@
+package engine;
+
+/**
+ * Fen reads and writes positions in Forsyth-Edwards Notation, the one line
+ * format every chess test suite and tool uses to describe a position.
+ *
+ * @author Ben Clark
+ */
+public final class Fen {
+
+    /**
+     * The FEN of the standard starting position.
+     */
+    public static final String START =
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {
+
+    }
+
+    /**
+     * load sets a position up from a FEN string. The halfmove clock and
+     * fullmove number are optional. Castling rights whose king or rook is
+     * not on its square and an en passant square without a pawn that just
+     * moved past it are left out, since the move generator trusts them.
+     *
+     * @param pos the position to set up
+     * @param fen the FEN string
+     * @throws IllegalArgumentException if the FEN can't be read
+     */
+    public static void load(Position pos, String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("FEN needs at least 4 fields: "
+                    + fen);
+        }
+        pos.clear();
+
+        int rank = 7;
+        int file = 0;
+        for (int i = 0; i < fields[0].length(); i++) {
+            char c = fields[0].charAt(i);
+            if (c == '/') {
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int type = Position.typeOf(c);
+                if (type == Position.EMPTY || file > 7 || rank < 0) {
+                    throw new IllegalArgumentException("Bad FEN board: "
+                            + fields[0]);
+                }
+                int color = Character.isUpperCase(c) ? Position.WHITE
+                        : Position.BLACK;
+                pos.putPiece(Position.piece(color, type),
+                        Position.square(file, rank));
+                file++;
+            }
+        }
+        if (Long.bitCount(pos.pieces(Position.WHITE, Position.KING)) != 1
+                || Long.bitCount(pos.pieces(Position.BLACK, Position.KING))
+                != 1) {
+            throw new IllegalArgumentException("FEN needs one king per side: "
+                    + fields[0]);
+        }
+
+        pos.setSideToMove(fields[1].equals("b") ? Position.BLACK
+                : Position.WHITE);
+
+        int rights = 0;
+        for (int i = 0; i < fields[2].length(); i++) {
+            switch (fields[2].charAt(i)) {
+                case 'K':
+                    rights |= Position.WHITE_KING_CASTLE;
+                    break;
+                case 'Q':
+                    rights |= Position.WHITE_QUEEN_CASTLE;
+                    break;
+                case 'k':
+                    rights |= Position.BLACK_KING_CASTLE;
+                    break;
+                case 'q':
+                    rights |= Position.BLACK_QUEEN_CASTLE;
+                    break;
+                default:
+                    break;
+            }
+        }
+        pos.setCastlingRights(rights & possibleCastles(pos));
+
+        int ep = fields[3].equals("-") ? Position.NO_SQUARE
+                : parseSquare(fields[3]);
+        //The pawn that just moved two squares is in front of the square
+        int us = pos.getSideToMove();
+        int pawn = us == Position.WHITE ? ep - 8 : ep + 8;
+        if (ep != Position.NO_SQUARE && ((ep >>> 3) != (us == Position.WHITE
+                ? 5 : 2) || pos.pieceAt(pawn) != Position.piece(us ^ 1,
+                Position.PAWN))) {
+            ep = Position.NO_SQUARE;
+        }
+        pos.setEpSquare(ep);
+
+        if (fields.length > 4) {
+            pos.setHalfmoveClock(Integer.parseInt(fields[4]));
+        }
+        if (fields.length > 5) {
+            pos.setFullmoveNumber(Integer.parseInt(fields[5]));
+        }
+    }
+
+    /**
+     * possibleCastles gets the castling rights whose king and rook are on
+     * their starting squares.
+     */
+    private static int possibleCastles(Position pos) {
+        int rights = 0;
+        int[] kingSide = {Position.WHITE_KING_CASTLE,
+            Position.BLACK_KING_CASTLE};
+        int[] queenSide = {Position.WHITE_QUEEN_CASTLE,
+            Position.BLACK_QUEEN_CASTLE};
+        for (int color = Position.WHITE; color <= Position.BLACK; color++) {
+            int base = color == Position.WHITE ? 0 : 56;
+            int rook = Position.piece(color, Position.ROOK);
+            if (pos.pieceAt(base + 4) != Position.piece(color, Position.KING)) {
+                continue;
+            }
+            if (pos.pieceAt(base + 7) == rook) {
+                rights |= kingSide[color];
+            }
+            if (pos.pieceAt(base) == rook) {
+                rights |= queenSide[color];
+            }
+        }
+        return rights;
+    }
+
+    /**
+     * toFen writes a position as a FEN string.
+     *
+     * @param pos the position
+     * @return the FEN string
+     */
+    public static String toFen(Position pos) {
+        StringBuilder sb = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int piece = pos.pieceAt(Position.square(file, rank));
+                if (piece == Position.EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = Position.TYPE_CHARS.charAt(Position.typeOf(piece));
+                sb.append(Position.colorOf(piece) == Position.WHITE
+                        ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (rank > 0) {
+                sb.append('/');
+            }
+        }
+
+        sb.append(pos.getSideToMove() == Position.WHITE ? " w " : " b ");
+
+        int rights = pos.getCastlingRights();
+        if (rights == 0) {
+            sb.append('-');
+        }
+        if ((rights & Position.WHITE_KING_CASTLE) != 0) {
+            sb.append('K');
+        }
+        if ((rights & Position.WHITE_QUEEN_CASTLE) != 0) {
+            sb.append('Q');
+        }
+        if ((rights & Position.BLACK_KING_CASTLE) != 0) {
+            sb.append('k');
+        }
+        if ((rights & Position.BLACK_QUEEN_CASTLE) != 0) {
+            sb.append('q');
+        }
+
+        sb.append(' ');
+        if (pos.getEpSquare() == Position.NO_SQUARE) {
+            sb.append('-');
+        } else {
+            Move.appendSquare(sb, pos.getEpSquare());
+        }
+        sb.append(' ').append(pos.getHalfmoveClock())
+                .append(' ').append(pos.getFullmoveNumber());
+        return sb.toString();
+    }
+
+    /**
+     * parseSquare reads a square such as e3.
+     *
+     * @param square the square as text
+     * @return the square
+     * @throws IllegalArgumentException if the text is not a square
+     */
+    public static int parseSquare(String square) {
+        if (square.length() != 2 || square.charAt(0) < 'a'
+                || square.charAt(0) > 'h' || square.charAt(1) < '1'
+                || square.charAt(1) > '8') {
+            throw new IllegalArgumentException("Bad square: " + square);
+        }
+        return Position.square(square.charAt(0) - 'a', square.charAt(1) - '1');
+    }
+}
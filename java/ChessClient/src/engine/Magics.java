@@ -0,0 +1,181 @@
+package engine;
+
+/**
+ * Magics looks up rook and bishop attacks with magic bitboards. For every
+ * square the blockers that matter are multiplied by a magic number and the top
+ * bits of the product index a table of precomputed attacks, so an attack is
+ * one multiply, one shift and one array read with no branches.
+ *
+ * The magic numbers are searched for when the class loads using a fixed seed
+ * for every rank, so the tables are the same on every run and the search is
+ * done once per JVM. All squares share one table per piece type.
+ *
+ * @author Ben Clark
+ */
+final class Magics {
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE = new long[0x19000];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE = new long[0x1480];
+
+    private static final int[][] ROOK_DIRECTIONS = {{0, 1}, {1, 0}, {0, -1},
+    {-1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1},
+    {-1, -1}, {-1, 1}};
+
+    /**
+     * Seeds for the random number generator of each rank that find magics
+     * quickly.
+     */
+    private static final long[] SEEDS = {728, 10316, 55013, 32803, 12281,
+        15100, 16645, 255};
+
+    static {
+        init(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS,
+                ROOK_OFFSETS, ROOK_TABLE);
+        init(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS,
+                BISHOP_OFFSETS, BISHOP_TABLE);
+    }
+
+    private Magics() {
+
+    }
+
+    /**
+     * rookAttacks gets the squares a rook on sq attacks.
+     *
+     * @param sq the square of the rook
+     * @param occupied every occupied square
+     * @return the attacked squares, including the first blocker in each
+     * direction
+     */
+    static long rookAttacks(int sq, long occupied) {
+        return ROOK_TABLE[ROOK_OFFSETS[sq] + (int) (((occupied
+                & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    /**
+     * bishopAttacks gets the squares a bishop on sq attacks.
+     *
+     * @param sq the square of the bishop
+     * @param occupied every occupied square
+     * @return the attacked squares, including the first blocker in each
+     * direction
+     */
+    static long bishopAttacks(int sq, long occupied) {
+        return BISHOP_TABLE[BISHOP_OFFSETS[sq] + (int) (((occupied
+                & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq])
+                >>> BISHOP_SHIFTS[sq])];
+    }
+
+    /**
+     * init finds a magic for every square and fills in its part of the
+     * table.
+     */
+    private static void init(int[][] directions, long[] masks, long[] magics,
+            int[] shifts, int[] offsets, long[] table) {
+        long[] occupancies = new long[4096];
+        long[] references = new long[4096];
+        int[] epoch = new int[4096];
+        int attempt = 0;
+        int offset = 0;
+
+        for (int sq = 0; sq < 64; sq++) {
+            //The edges only matter when the piece is on them
+            long edges = ((Bitboards.RANK_1 | Bitboards.RANK_8)
+                    & ~rankOf(sq)) | ((Bitboards.FILE_A | Bitboards.FILE_H)
+                    & ~fileOf(sq));
+            long mask = slowAttacks(directions, sq, 0L) & ~edges;
+            int bits = Long.bitCount(mask);
+            masks[sq] = mask;
+            shifts[sq] = 64 - bits;
+            offsets[sq] = offset;
+
+            //Carry-Rippler trick to walk every subset of the mask
+            int size = 0;
+            long subset = 0L;
+            do {
+                occupancies[size] = subset;
+                references[size] = slowAttacks(directions, sq, subset);
+                size++;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            long[] seed = {SEEDS[sq >>> 3]};
+            long magic;
+            boolean found;
+            do {
+                do {
+                    magic = random(seed) & random(seed) & random(seed);
+                } while (Long.bitCount((magic * mask) >>> 56) < 6);
+
+                attempt++;
+                found = true;
+                for (int i = 0; i < size; i++) {
+                    int index = (int) ((occupancies[i] * magic) >>> shifts[sq]);
+                    if (epoch[index] < attempt) {
+                        epoch[index] = attempt;
+                        table[offset + index] = references[i];
+                    } else if (table[offset + index] != references[i]) {
+                        found = false;
+                        break;
+                    }
+                }
+            } while (!found);
+
+            magics[sq] = magic;
+            offset += size;
+        }
+    }
+
+    /**
+     * slowAttacks walks out from a square one step at a time. It is only
+     * used to build the tables.
+     */
+    private static long slowAttacks(int[][] directions, int sq,
+            long occupied) {
+        long attacks = 0L;
+        for (int[] direction : directions) {
+            int file = (sq & 7) + direction[0];
+            int rank = (sq >>> 3) + direction[1];
+            while (file >= 0 && file < 8 && rank >= 0 && rank < 8) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+                if ((occupied & bit) != 0) {
+                    break;
+                }
+                file += direction[0];
+                rank += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long rankOf(int sq) {
+        return Bitboards.RANK_1 << (sq & ~7);
+    }
+
+    private static long fileOf(int sq) {
+        return Bitboards.FILE_A << (sq & 7);
+    }
+
+    /**
+     * random is the xorshift64star generator.
+     */
+    private static long random(long[] seed) {
+        long s = seed[0];
+        s ^= s >>> 12;
+        s ^= s << 25;
+        s ^= s >>> 27;
+        seed[0] = s;
+        return s * 2685821657736338717L;
+    }
+}
@@ -0,0 +1,475 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Match plays two engine configurations against each other without a window
+ * to measure whether a change made the engine stronger and how fast it
+ * plays. Games run at the same time on a pool with one game per core, and
+ * every opening is played twice with the colors swapped so neither side is
+ * favoured by the openings.
+ *
+ * Searches limited by depth or nodes play the same moves every time, so a
+ * match replaying one opening would only repeat the same two games. Without
+ * an openings file each pair of games therefore starts with RANDOM_PLIES
+ * random moves from the start position, picked from a seed of the pair's
+ * own so both games of the pair get the same opening. The Elo and SPRT only
+ * mean as much as the number of distinct openings they count, which is
+ * printed with them.
+ *
+ * Games end by the same rules as in the window, see Outcome. A game that
+ * reaches MAX_PLIES is called a draw.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Match [-games n] [-concurrency n]
+ *         [-openings file.epd] [-a config] [-b config] [-sprt elo0 elo1]
+ * </pre>
+ * A config is a comma separated list such as nodes=20000,hash=16 with the
+ * keys depth, nodes, movetime and hash. Results are from a's point of view.
+ * With -sprt the match stops once the test either passes or fails.
+ *
+ * @author Ben Clark
+ */
+public final class Match {
+
+    /**
+     * Games longer than this are adjudicated as draws.
+     */
+    static final int MAX_PLIES = 400;
+
+    /**
+     * How often progress is printed, in games.
+     */
+    private static final int REPORT_INTERVAL = 100;
+
+    /**
+     * How many random moves open each pair of games without an openings
+     * file.
+     */
+    static final int RANDOM_PLIES = 8;
+
+    /**
+     * The false positive and false negative rates of the SPRT.
+     */
+    private static final double SPRT_ALPHA = 0.05;
+    private static final double SPRT_BETA = 0.05;
+
+    /**
+     * Config is the limits and table size one side of the match plays with.
+     */
+    static final class Config {
+
+        int depth = Search.MAX_PLY;
+        long nodes;
+        long movetime;
+        int hash = 16;
+
+        /**
+         * parse reads a config such as nodes=20000,hash=16.
+         *
+         * @param text the config
+         * @return the config
+         * @throws IllegalArgumentException if the config can't be read
+         */
+        static Config parse(String text) {
+            Config config = new Config();
+            for (String option : text.split(",")) {
+                String[] pair = option.split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Bad config: " + text);
+                }
+                int value = Integer.parseInt(pair[1].trim());
+                switch (pair[0].trim()) {
+                    case "depth":
+                        config.depth = value;
+                        break;
+                    case "nodes":
+                        config.nodes = value;
+                        break;
+                    case "movetime":
+                        config.movetime = value;
+                        break;
+                    case "hash":
+                        config.hash = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Bad config: "
+                                + text);
+                }
+            }
+            if (config.depth == Search.MAX_PLY && config.nodes == 0
+                    && config.movetime == 0) {
+                throw new IllegalArgumentException("Config needs a limit: "
+                        + text);
+            }
+            return config;
+        }
+    }
+
+    private final Config a;
+    private final Config b;
+    private final List<String> openings;
+    private final int games;
+    private final int concurrency;
+    private final double elo0;
+    private final double elo1;
+    private final boolean sprt;
+
+    /**
+     * The tables of each worker thread, a's then b's. Every worker keeps its
+     * own so games don't see each other's entries.
+     */
+    private final ThreadLocal<TranspositionTable[]> tables;
+
+    private final AtomicInteger nextGame = new AtomicInteger();
+    private int wins;
+    private int draws;
+    private int losses;
+    private long nodes;
+    private boolean decided;
+    private long startTime;
+
+    /**
+     * Constructs a Match.
+     *
+     * @param a the configuration results are counted for
+     * @param b the configuration a plays against
+     * @param openings the FENs of the openings, each played twice, or an
+     * empty list for random openings
+     * @param games the number of games to play
+     * @param concurrency the number of games to play at once
+     * @param elo0 the Elo difference of the SPRT's null hypothesis
+     * @param elo1 the Elo difference of the SPRT's alternative hypothesis
+     * @param sprt whether or not to stop once the SPRT is decided
+     */
+    Match(Config a, Config b, List<String> openings, int games,
+            int concurrency, double elo0, double elo1, boolean sprt) {
+        this.a = a;
+        this.b = b;
+        this.openings = openings;
+        this.games = games;
+        this.concurrency = concurrency;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.sprt = sprt;
+        this.tables = ThreadLocal.withInitial(() -> new TranspositionTable[]{
+            new TranspositionTable(a.hash), new TranspositionTable(b.hash)});
+    }
+
+    /**
+     * run plays the match on the worker pool and prints the results.
+     */
+    void run() {
+        startTime = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "match");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < concurrency; i++) {
+            pool.execute(this::work);
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            System.out.println(e.getMessage());
+        }
+        //The last progress line is already the final result
+        if ((wins + draws + losses) % REPORT_INTERVAL != 0) {
+            report();
+        }
+    }
+
+    /**
+     * work plays games on one worker until there are none left.
+     */
+    private void work() {
+        TranspositionTable[] pair = tables.get();
+        Search[] searches = {new Search(pair[0]), new Search(pair[1])};
+        Position pos = new Position();
+        int[] moves = new int[MoveGenerator.MAX_MOVES];
+        int game;
+        while ((game = nextGame.getAndIncrement()) < games && !isDecided()) {
+            if (openings.isEmpty()) {
+                randomOpening(pos, game / 2, moves);
+            } else {
+                Fen.load(pos, openings.get((game / 2) % openings.size()));
+            }
+            //a plays white in even games and black in odd ones
+            int aColor = (game & 1) == 0 ? pos.getSideToMove()
+                    : pos.getSideToMove() ^ 1;
+            long gameNodes = 0;
+            //Each game starts from empty tables like a new game would
+            pair[0].clear();
+            pair[1].clear();
+
+            int result = 0;
+            for (int ply = 0; ply < MAX_PLIES; ply++) {
+                int count = MoveGenerator.generate(pos, moves);
+                Outcome outcome = Outcome.of(pos, count);
+                if (outcome == Outcome.CHECKMATE) {
+                    result = pos.getSideToMove() == aColor ? -1 : 1;
+                    break;
+                } else if (outcome != Outcome.NONE) {
+                    break;
+                }
+                boolean aToMove = pos.getSideToMove() == aColor;
+                Search search = searches[aToMove ? 0 : 1];
+                Config config = aToMove ? a : b;
+                int move = search.search(pos, config.depth, config.nodes,
+                        config.movetime);
+                gameNodes += search.getNodes();
+                pos.makeMove(move);
+            }
+            record(result, gameNodes);
+        }
+    }
+
+    /**
+     * randomOpening plays RANDOM_PLIES random moves from the start position.
+     * The moves only depend on the pair, and a line that ends the game is
+     * thrown away for the next one from the same seed.
+     *
+     * @param pos the position to set up
+     * @param pair the pair of games the opening is for
+     * @param moves a buffer for the legal moves
+     */
+    static void randomOpening(Position pos, int pair, int[] moves) {
+        Random random = new Random(pair);
+        do {
+            pos.setStartPosition();
+        } while (!playRandom(pos, random, moves));
+    }
+
+    /**
+     * playRandom plays RANDOM_PLIES random moves.
+     *
+     * @return whether or not the game can still go on after them
+     */
+    private static boolean playRandom(Position pos, Random random,
+            int[] moves) {
+        for (int ply = 0;; ply++) {
+            int count = MoveGenerator.generate(pos, moves);
+            if (Outcome.of(pos, count) != Outcome.NONE) {
+                return false;
+            } else if (ply == RANDOM_PLIES) {
+                return true;
+            }
+            pos.makeMove(moves[random.nextInt(count)]);
+        }
+    }
+
+    /**
+     * record adds the result of a finished game and prints progress.
+     */
+    private synchronized void record(int result, long gameNodes) {
+        if (result > 0) {
+            wins++;
+        } else if (result < 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        nodes += gameNodes;
+        if (sprt) {
+            double llr = llr();
+            decided = llr >= upperBound() || llr <= lowerBound();
+        }
+        if ((wins + draws + losses) % REPORT_INTERVAL == 0) {
+            report();
+        }
+    }
+
+    private synchronized boolean isDecided() {
+        return decided;
+    }
+
+    /**
+     * report prints the score, Elo, SPRT and speed so far, and how many
+     * distinct openings the games were played from. Both games of a pair
+     * share an opening, so the Elo and SPRT rest on that many pairs.
+     */
+    private synchronized void report() {
+        int played = wins + draws + losses;
+        if (played == 0) {
+            return;
+        }
+        double seconds = Math.max(1e-9,
+                (System.nanoTime() - startTime) / 1e9);
+        double score = score();
+        double margin = 1.96 * Math.sqrt(variance() / played);
+        int pairs = (played + 1) / 2;
+        int distinct = openings.isEmpty() ? pairs
+                : Math.min(pairs, openings.size());
+        System.out.println(String.format(
+                "Games: %d  Opening pairs: %d  W: %d  D: %d  L: %d"
+                + "  Elo: %.1f +/- %.1f  Games/s: %.2f  NPS: %d", played,
+                distinct, wins, draws, losses,
+                elo(score), (elo(score + margin) - elo(score - margin)) / 2,
+                played / seconds, (long) (nodes / seconds)));
+        double llr = llr();
+        String verdict = llr >= upperBound() ? "H1 accepted, pass"
+                : llr <= lowerBound() ? "H0 accepted, fail" : "continue";
+        System.out.println(String.format(
+                "SPRT elo0 %.1f elo1 %.1f: LLR %.2f (%.2f, %.2f) %s",
+                elo0, elo1, llr, lowerBound(), upperBound(), verdict));
+    }
+
+    /**
+     * score gets the fraction of the points a scored.
+     */
+    private double score() {
+        int played = wins + draws + losses;
+        return (wins + draws / 2.0) / played;
+    }
+
+    /**
+     * variance gets the variance of the score of one game.
+     */
+    private double variance() {
+        int played = wins + draws + losses;
+        double s = score();
+        return (wins * (1 - s) * (1 - s) + draws * (0.5 - s) * (0.5 - s)
+                + losses * s * s) / played;
+    }
+
+    /**
+     * elo turns a score fraction into an Elo difference.
+     */
+    static double elo(double score) {
+        double s = Math.max(1e-6, Math.min(1 - 1e-6, score));
+        return -400 * Math.log10(1 / s - 1);
+    }
+
+    /**
+     * expected turns an Elo difference into the score fraction it predicts.
+     */
+    static double expected(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * llr gets the log likelihood ratio of elo1 against elo0 with the normal
+     * approximation of the score of a game.
+     */
+    private double llr() {
+        int played = wins + draws + losses;
+        double variance = variance();
+        if (played == 0 || variance == 0) {
+            return 0;
+        }
+        double s0 = expected(elo0);
+        double s1 = expected(elo1);
+        return played * (s1 - s0) * (2 * score() - s0 - s1)
+                / (2 * variance);
+    }
+
+    private static double lowerBound() {
+        return Math.log(SPRT_BETA / (1 - SPRT_ALPHA));
+    }
+
+    private static double upperBound() {
+        return Math.log((1 - SPRT_BETA) / SPRT_ALPHA);
+    }
+
+    /**
+     * readOpenings reads the positions of an EPD file. Only the first four
+     * fields of each line are the position, the operations after them are
+     * ignored.
+     *
+     * @param file the EPD file
+     * @return the FENs of the positions
+     * @throws IOException if the file can't be read
+     */
+    static List<String> readOpenings(String file) throws IOException {
+        List<String> openings = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length >= 4) {
+                    openings.add(fields[0] + " " + fields[1] + " "
+                            + fields[2] + " " + fields[3]);
+                }
+            }
+        }
+        return openings;
+    }
+
+    /**
+     * Entry point of the match runner.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int games = 1000;
+            int concurrency = Runtime.getRuntime().availableProcessors();
+            List<String> openings = new ArrayList<>();
+            Config a = Config.parse("nodes=20000");
+            Config b = Config.parse("nodes=20000");
+            double elo0 = 0;
+            double elo1 = 5;
+            boolean sprt = false;
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for "
+                            + option);
+                }
+                switch (option) {
+                    case "-games":
+                        games = Integer.parseInt(args[++i]);
+                        break;
+                    case "-concurrency":
+                        concurrency = Integer.parseInt(args[++i]);
+                        break;
+                    case "-openings":
+                        openings = readOpenings(args[++i]);
+                        break;
+                    case "-a":
+                        a = Config.parse(args[++i]);
+                        break;
+                    case "-b":
+                        b = Config.parse(args[++i]);
+                        break;
+                    case "-sprt":
+                        if (i + 2 >= args.length) {
+                            throw new IllegalArgumentException(
+                                    "-sprt needs elo0 and elo1");
+                        }
+                        elo0 = Double.parseDouble(args[++i]);
+                        elo1 = Double.parseDouble(args[++i]);
+                        sprt = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: "
+                                + option);
+                }
+            }
+            for (String opening : openings) {
+                Fen.load(new Position(), opening);
+            }
+            new Match(a, b, openings, games, Math.max(1, concurrency), elo0,
+                    elo1, sprt).run();
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: Match [-games n] [-concurrency n]"
+                    + " [-openings file.epd] [-a config] [-b config]"
+                    + " [-sprt elo0 elo1]");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package engine;
+
+/**
+ * Move packs a chess move into the low 16 bits of an int so move lists can be
+ * stored in primitive arrays. Bits 0-5 are the from square, bits 6-11 are the
+ * to square and bits 12-15 are the flags below.
+ *
+ * @author Ben Clark
+ */
+public final class Move {
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+
+    /**
+     * Promotion flags are PROMOTION plus the promoted type minus KNIGHT, with
+     * the CAPTURE bit set when the promotion also takes a piece.
+     */
+    public static final int PROMOTION = 8;
+
+    /**
+     * A value that is never a legal move.
+     */
+    public static final int NONE = 0;
+
+    private Move() {
+
+    }
+
+    /**
+     * of packs a move.
+     *
+     * @param from the square the piece moves from
+     * @param to the square the piece moves to
+     * @param flags the flags of the move
+     * @return the packed move
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << 6) | (flags << 12);
+    }
+
+    /**
+     * from gets the square a move starts on.
+     *
+     * @param move the packed move
+     * @return the from square
+     */
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    /**
+     * to gets the square a move ends on.
+     *
+     * @param move the packed move
+     * @return the to square
+     */
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * flags gets the flags of a move.
+     *
+     * @param move the packed move
+     * @return the flags
+     */
+    public static int flags(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    /**
+     * isCapture checks if a move takes a piece, including en passant.
+     *
+     * @param move the packed move
+     * @return whether or not the move is a capture
+     */
+    public static boolean isCapture(int move) {
+        return (move & (CAPTURE << 12)) != 0;
+    }
+
+    /**
+     * isPromotion checks if a move promotes a pawn.
+     *
+     * @param move the packed move
+     * @return whether or not the move is a promotion
+     */
+    public static boolean isPromotion(int move) {
+        return (move & (PROMOTION << 12)) != 0;
+    }
+
+    /**
+     * promotion gets the type a pawn promotes to.
+     *
+     * @param move the packed move
+     * @return the promoted type, only meaningful for promotions
+     */
+    public static int promotion(int move) {
+        return Position.KNIGHT + ((move >>> 12) & 3);
+    }
+
+    /**
+     * toString writes a move in coordinate notation such as e2e4 or e7e8q.
+     *
+     * @param move the packed move
+     * @return the move as a string
+     */
+    public static String toString(int move) {
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+        if (isPromotion(move)) {
+            sb.append(Position.TYPE_CHARS.charAt(promotion(move)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * appendSquare writes a square such as e4.
+     *
+     * @param sb where to write the square
+     * @param sq the square
+     */
+    public static void appendSquare(StringBuilder sb, int sq) {
+        sb.append((char) ('a' + (sq & 7))).append((char) ('1' + (sq >>> 3)));
+    }
+}
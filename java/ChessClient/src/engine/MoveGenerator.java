@@ -0,0 +1,351 @@
+package engine;
+
+import static engine.Bitboards.*;
+import static engine.Position.*;
+
+/**
+ * MoveGenerator produces the legal moves of a Position directly. Pinned pieces
+ * are restricted to the line through their king, and when the king is in
+ * check the other pieces may only capture the checker or block the check, so
+ * no move has to be played to see if it leaves the king in check.
+ *
+ * @author Ben Clark
+ */
+public final class MoveGenerator {
+
+    /**
+     * More moves than any legal chess position has.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * More moves than one piece can have, which is enough room for isLegal.
+     */
+    public static final int MAX_PIECE_MOVES = 32;
+
+    //What to generate
+    private static final int ALL = 0;
+    private static final int CAPTURES = 1;
+    private static final int QUIETS = 2;
+
+    private MoveGenerator() {
+
+    }
+
+    /**
+     * generate writes every legal move of the side to move into moves.
+     *
+     * @param pos the position to generate moves for
+     * @param moves where to write the moves, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generate(Position pos, int[] moves) {
+        return generate(pos, moves, ALL, -1L);
+    }
+
+    /**
+     * generateCaptures writes the legal captures and queen promotions of the
+     * side to move into moves, which is all the quiescence search looks at.
+     *
+     * @param pos the position to generate moves for
+     * @param moves where to write the moves, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generateCaptures(Position pos, int[] moves) {
+        return generate(pos, moves, CAPTURES, -1L);
+    }
+
+    /**
+     * generateQuiets writes the legal moves generateCaptures leaves out: the
+     * moves that capture nothing and the under-promotions.
+     *
+     * @param pos the position to generate moves for
+     * @param moves where to write the moves, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public static int generateQuiets(Position pos, int[] moves) {
+        return generate(pos, moves, QUIETS, -1L);
+    }
+
+    /**
+     * generatePieces writes the legal moves of the side to move's pieces on
+     * the given squares into moves, such as the pieces that could have made
+     * a move read from a PGN file.
+     *
+     * @param pos the position to generate moves for
+     * @param moves where to write the moves, at least MAX_MOVES long
+     * @param fromMask the squares of the pieces to generate moves for
+     * @return the number of moves written
+     */
+    public static int generatePieces(Position pos, int[] moves,
+            long fromMask) {
+        return generate(pos, moves, ALL, fromMask);
+    }
+
+    /**
+     * isLegal checks if a move, such as one remembered from another
+     * position, is legal in this one by generating the moves of the piece on
+     * its from square.
+     *
+     * @param pos the position
+     * @param move the packed move
+     * @param moves room for the moves of one piece, at least MAX_PIECE_MOVES
+     * long
+     * @return whether or not the move is legal
+     */
+    public static boolean isLegal(Position pos, int move, int[] moves) {
+        if (move == Move.NONE) {
+            return false;
+        }
+        int from = Move.from(move);
+        if ((pos.occupancy(pos.getSideToMove()) & (1L << from)) == 0) {
+            return false;
+        }
+        int count = generate(pos, moves, ALL, 1L << from);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * generate writes the legal moves of the kind asked for of the pieces on
+     * the from squares into moves.
+     */
+    private static int generate(Position pos, int[] moves, int kind,
+            long fromMask) {
+        int us = pos.getSideToMove();
+        int them = us ^ 1;
+        long ours = pos.occupancy(us);
+        long theirs = pos.occupancy(them);
+        long occupied = ours | theirs;
+        int king = pos.kingSquare(us);
+        int count = 0;
+
+        long checkers = pos.attackersTo(king, occupied) & theirs;
+
+        //King moves, with the king taken off the board so it can't hide
+        //behind itself from a slider
+        long kingless = occupied ^ (1L << king);
+        long targets = (fromMask & (1L << king)) == 0 ? 0L
+                : KING_ATTACKS[king] & (kind == ALL ? ~ours
+                        : kind == CAPTURES ? theirs : ~occupied);
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if (!pos.isSquareAttacked(to, them, kingless)) {
+                moves[count++] = Move.of(king, to,
+                        (theirs & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+            }
+        }
+
+        //Only the king can move out of a double check
+        if (Long.bitCount(checkers) > 1) {
+            return count;
+        }
+
+        long checkMask = -1L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = BETWEEN[king][checker] | checkers;
+        } else if (kind != CAPTURES && (fromMask & (1L << king)) != 0) {
+            count = generateCastles(pos, us, occupied, moves, count);
+        }
+
+        long pinned = pinned(pos, us, king, ours, occupied);
+        long allowed = (kind == ALL ? ~ours
+                : kind == CAPTURES ? theirs : ~occupied) & checkMask;
+
+        long knights = pos.pieces(us, KNIGHT) & ~pinned & fromMask;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            count = addMoves(from, KNIGHT_ATTACKS[from] & allowed, theirs,
+                    moves, count);
+        }
+
+        long diagonal = (pos.pieces(us, BISHOP) | pos.pieces(us, QUEEN))
+                & fromMask;
+        while (diagonal != 0) {
+            int from = Long.numberOfTrailingZeros(diagonal);
+            diagonal &= diagonal - 1;
+            count = addMoves(from, pinMask(from, king, pinned)
+                    & bishopAttacks(from, occupied) & allowed, theirs,
+                    moves, count);
+        }
+
+        long straight = (pos.pieces(us, ROOK) | pos.pieces(us, QUEEN))
+                & fromMask;
+        while (straight != 0) {
+            int from = Long.numberOfTrailingZeros(straight);
+            straight &= straight - 1;
+            count = addMoves(from, pinMask(from, king, pinned)
+                    & rookAttacks(from, occupied) & allowed, theirs,
+                    moves, count);
+        }
+
+        return generatePawnMoves(pos, us, king, pinned, checkMask, occupied,
+                theirs, kind, pos.pieces(us, PAWN) & fromMask, moves, count);
+    }
+
+    /**
+     * pinned finds the pieces of a color that can't leave the line between
+     * their king and an enemy slider.
+     *
+     * @param pos the position
+     * @param us the color of the king
+     * @param king the square of the king
+     * @param ours every piece of the king's color
+     * @param occupied every piece on the board
+     * @return the pinned pieces
+     */
+    private static long pinned(Position pos, int us, int king, long ours,
+            long occupied) {
+        int them = us ^ 1;
+        long theirs = occupied & ~ours;
+        long queens = pos.pieces(them, QUEEN);
+        long snipers = (rookAttacks(king, theirs)
+                & (pos.pieces(them, ROOK) | queens))
+                | (bishopAttacks(king, theirs)
+                & (pos.pieces(them, BISHOP) | queens));
+        long pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = BETWEEN[king][sniper] & occupied;
+            if ((blockers & (blockers - 1)) == 0 && (blockers & ours) != 0) {
+                pinned |= blockers;
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * pinMask gets the squares a piece may move to because of pins.
+     */
+    private static long pinMask(int from, int king, long pinned) {
+        return (pinned & (1L << from)) != 0 ? LINE[king][from] : -1L;
+    }
+
+    /**
+     * addMoves writes a move from one square to each of the target squares.
+     */
+    private static int addMoves(int from, long targets, long theirs,
+            int[] moves, int count) {
+        while (targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            moves[count++] = Move.of(from, to,
+                    (theirs & (1L << to)) != 0 ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+
+    /**
+     * generateCastles writes the castling moves of a king that is not in
+     * check. The squares between the king and rook have to be empty and the
+     * king can't pass over or land on an attacked square.
+     */
+    private static int generateCastles(Position pos, int us, long occupied,
+            int[] moves, int count) {
+        int rights = pos.getCastlingRights();
+        int them = us ^ 1;
+        int base = us == WHITE ? 0 : 56;
+        int kingSide = us == WHITE ? WHITE_KING_CASTLE : BLACK_KING_CASTLE;
+        int queenSide = us == WHITE ? WHITE_QUEEN_CASTLE : BLACK_QUEEN_CASTLE;
+        if ((rights & kingSide) != 0
+                && (occupied & (0x60L << base)) == 0
+                && !pos.isSquareAttacked(base + 5, them, occupied)
+                && !pos.isSquareAttacked(base + 6, them, occupied)) {
+            moves[count++] = Move.of(base + 4, base + 6, Move.KING_CASTLE);
+        }
+        if ((rights & queenSide) != 0
+                && (occupied & (0x0EL << base)) == 0
+                && !pos.isSquareAttacked(base + 3, them, occupied)
+                && !pos.isSquareAttacked(base + 2, them, occupied)) {
+            moves[count++] = Move.of(base + 4, base + 2, Move.QUEEN_CASTLE);
+        }
+        return count;
+    }
+
+    /**
+     * generatePawnMoves writes the pushes, captures, promotions and en
+     * passant captures of the given pawns. CAPTURES keeps the captures and
+     * queen promotions and QUIETS the rest.
+     */
+    private static int generatePawnMoves(Position pos, int us, int king,
+            long pinned, long checkMask, long occupied, long theirs,
+            int kind, long pawns, int[] moves, int count) {
+        int forward = us == WHITE ? 8 : -8;
+        long startRank = us == WHITE ? RANK_2 : RANK_7;
+        long lastRank = us == WHITE ? RANK_8 : RANK_1;
+        int ep = pos.getEpSquare();
+
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long pin = pinMask(from, king, pinned);
+
+            long targets = PAWN_ATTACKS[us][from] & theirs;
+            int push = from + forward;
+            if ((occupied & (1L << push)) == 0) {
+                targets |= 1L << push;
+                int doublePush = push + forward;
+                if (kind != CAPTURES && (startRank & (1L << from)) != 0
+                        && (occupied & (1L << doublePush)) == 0
+                        && (pin & checkMask & (1L << doublePush)) != 0) {
+                    moves[count++] = Move.of(from, doublePush,
+                            Move.DOUBLE_PUSH);
+                }
+            }
+            targets &= pin & checkMask;
+
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                int capture = (theirs & (1L << to)) != 0 ? Move.CAPTURE : 0;
+                if ((lastRank & (1L << to)) != 0) {
+                    int highest = kind == QUIETS ? ROOK : QUEEN;
+                    int lowest = kind == CAPTURES ? QUEEN : KNIGHT;
+                    for (int type = highest; type >= lowest; type--) {
+                        moves[count++] = Move.of(from, to, Move.PROMOTION
+                                | capture | (type - KNIGHT));
+                    }
+                } else if (kind == ALL
+                        || (kind == CAPTURES) == (capture != 0)) {
+                    moves[count++] = Move.of(from, to, capture);
+                }
+            }
+
+            if (kind != QUIETS && ep != NO_SQUARE
+                    && (PAWN_ATTACKS[us][from] & (1L << ep)) != 0
+                    && enPassantIsLegal(pos, us, king, from, ep, checkMask)) {
+                moves[count++] = Move.of(from, ep, Move.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * enPassantIsLegal checks an en passant capture by taking both pawns off
+     * of the board and looking for a slider that would then see the king. This
+     * covers pins along the rank the two pawns share as well as diagonal pins.
+     */
+    private static boolean enPassantIsLegal(Position pos, int us, int king,
+            int from, int ep, long checkMask) {
+        int captured = us == WHITE ? ep - 8 : ep + 8;
+        if ((checkMask & ((1L << ep) | (1L << captured))) == 0) {
+            return false;
+        }
+        int them = us ^ 1;
+        long occupied = pos.occupied() ^ (1L << from) ^ (1L << captured)
+                | (1L << ep);
+        long queens = pos.pieces(them, QUEEN);
+        return (rookAttacks(king, occupied)
+                & (pos.pieces(them, ROOK) | queens)) == 0
+                && (bishopAttacks(king, occupied)
+                & (pos.pieces(them, BISHOP) | queens)) == 0;
+    }
+}
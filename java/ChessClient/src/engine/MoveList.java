@@ -0,0 +1,124 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * MoveList is a growable list of packed moves kept in an int array, so
+ * adding a move never boxes it. It is used for the moves of a game, which
+ * can be replayed or sent to another player without turning them into
+ * strings.
+ *
+ * @author Ben Clark
+ */
+public final class MoveList {
+
+    private int[] moves;
+    private int size;
+
+    /**
+     * Constructs an empty list with room for a normal length game.
+     */
+    public MoveList() {
+        this(128);
+    }
+
+    /**
+     * Constructs an empty list with room for the given number of moves.
+     *
+     * @param capacity how many moves fit before the list has to grow
+     */
+    public MoveList(int capacity) {
+        moves = new int[Math.max(capacity, 1)];
+    }
+
+    /**
+     * add appends a move to the end of the list.
+     *
+     * @param move the packed move
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size * 2);
+        }
+        moves[size++] = move;
+    }
+
+    /**
+     * get gets the move at an index.
+     *
+     * @param index the index of the move
+     * @return the packed move
+     * @throws IndexOutOfBoundsException if there is no move at the index
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: "
+                    + size);
+        }
+        return moves[index];
+    }
+
+    /**
+     * removeLast takes the last move off of the list.
+     *
+     * @return the packed move that was removed
+     * @throws IndexOutOfBoundsException if the list is empty
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IndexOutOfBoundsException("The list is empty");
+        }
+        return moves[--size];
+    }
+
+    /**
+     * size gets the number of moves in the list.
+     *
+     * @return the number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * isEmpty checks if the list has no moves.
+     *
+     * @return whether or not the list is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * clear removes every move but keeps the room that was allocated.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * toArray copies the moves into a new array.
+     *
+     * @return the packed moves in order
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    /**
+     * toString writes the moves in coordinate notation separated by spaces.
+     *
+     * @return the moves as a string
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(size * 5);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(Move.toString(moves[i]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,245 @@
+package engine;
+
+/**
+ * MovePicker hands the moves of a position to the search one at a time, in
+ * the order most likely to cause a cutoff early:
+ * <ol>
+ * <li>the move from the transposition table</li>
+ * <li>captures that don't lose material by static exchange, most valuable
+ * victim and least valuable attacker first</li>
+ * <li>the two killer moves, quiet moves that caused a cutoff at the same
+ * ply elsewhere in the tree</li>
+ * <li>the countermove, the quiet move that last refuted the opponent's
+ * move</li>
+ * <li>the other quiet moves, best history score first</li>
+ * <li>the captures that lose material</li>
+ * </ol>
+ * Each stage is only generated when the one before it runs out, so a cutoff
+ * from the hash move or a capture never generates the quiet moves. Moves
+ * that are remembered from other positions are checked with
+ * MoveGenerator.isLegal, so every move handed out is legal.
+ *
+ * The search keeps one picker per ply so nothing is allocated while it
+ * runs.
+ *
+ * @author Ben Clark
+ */
+final class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int GOOD_CAPTURES = 2;
+    private static final int FIRST_KILLER = 3;
+    private static final int SECOND_KILLER = 4;
+    private static final int COUNTERMOVE = 5;
+    private static final int GENERATE_QUIETS = 6;
+    private static final int QUIETS = 7;
+    private static final int BAD_CAPTURES = 8;
+    private static final int DONE = 9;
+
+    private final Position pos;
+    private final int[][] history;
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final int[] scores = new int[MoveGenerator.MAX_MOVES];
+    private final int[] badCaptures = new int[MoveGenerator.MAX_MOVES];
+    private final int[] pieceMoves = new int[MoveGenerator.MAX_PIECE_MOVES];
+
+    private int stage;
+    private int hashMove;
+    private int firstKiller;
+    private int secondKiller;
+    private int countermove;
+    private int count;
+    private int index;
+    private int badCount;
+    private int badIndex;
+
+    /**
+     * Constructs a MovePicker.
+     *
+     * @param pos the position the search plays moves on
+     * @param history the history scores of the search, indexed by color
+     * then by the from and to squares, the low 12 bits of the move
+     */
+    MovePicker(Position pos, int[][] history) {
+        this.pos = pos;
+        this.history = history;
+    }
+
+    /**
+     * init starts picking the moves of the current position.
+     *
+     * @param hashMove the move from the transposition table or Move.NONE
+     * @param firstKiller the newest killer move or Move.NONE
+     * @param secondKiller the older killer move or Move.NONE
+     * @param countermove the countermove or Move.NONE
+     */
+    void init(int hashMove, int firstKiller, int secondKiller,
+            int countermove) {
+        this.hashMove = hashMove;
+        this.firstKiller = firstKiller;
+        this.secondKiller = secondKiller;
+        this.countermove = countermove;
+        stage = HASH;
+        badCount = 0;
+        badIndex = 0;
+    }
+
+    /**
+     * next gets the next move to search. Each stage falls through to the
+     * next one once it has no moves left.
+     *
+     * @return the packed move or Move.NONE once every move has been picked
+     */
+    @SuppressWarnings("fallthrough")
+    int next() {
+        switch (stage) {
+            case HASH:
+                stage = GENERATE_CAPTURES;
+                if (MoveGenerator.isLegal(pos, hashMove, pieceMoves)) {
+                    return hashMove;
+                }
+            //fall through
+            case GENERATE_CAPTURES:
+                count = MoveGenerator.generateCaptures(pos, moves);
+                for (int i = 0; i < count; i++) {
+                    scores[i] = mvvLva(pos, moves[i]);
+                }
+                index = 0;
+                stage = GOOD_CAPTURES;
+            //fall through
+            case GOOD_CAPTURES:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move == hashMove) {
+                        continue;
+                    }
+                    if (!See.atLeast(pos, move, 0)) {
+                        badCaptures[badCount++] = move;
+                        continue;
+                    }
+                    return move;
+                }
+                stage = FIRST_KILLER;
+            //fall through
+            case FIRST_KILLER:
+                stage = SECOND_KILLER;
+                if (isNewQuiet(firstKiller)) {
+                    return firstKiller;
+                }
+            //fall through
+            case SECOND_KILLER:
+                stage = COUNTERMOVE;
+                if (secondKiller != firstKiller && isNewQuiet(secondKiller)) {
+                    return secondKiller;
+                }
+            //fall through
+            case COUNTERMOVE:
+                stage = GENERATE_QUIETS;
+                if (countermove != firstKiller && countermove != secondKiller
+                        && isNewQuiet(countermove)) {
+                    return countermove;
+                }
+            //fall through
+            case GENERATE_QUIETS:
+                count = MoveGenerator.generateQuiets(pos, moves);
+                int[] scoresOfSide = history[pos.getSideToMove()];
+                for (int i = 0; i < count; i++) {
+                    scores[i] = scoresOfSide[moves[i] & 0xFFF];
+                }
+                index = 0;
+                stage = QUIETS;
+            //fall through
+            case QUIETS:
+                while (index < count) {
+                    int move = pickBest();
+                    if (move != hashMove && move != firstKiller
+                            && move != secondKiller && move != countermove) {
+                        return move;
+                    }
+                }
+                stage = BAD_CAPTURES;
+            //fall through
+            case BAD_CAPTURES:
+                if (badIndex < badCount) {
+                    return badCaptures[badIndex++];
+                }
+                stage = DONE;
+            //fall through
+            default:
+                return Move.NONE;
+        }
+    }
+
+    /**
+     * isNewQuiet checks if a killer or countermove can be played here and
+     * wasn't already picked as the hash move.
+     */
+    private boolean isNewQuiet(int move) {
+        return move != Move.NONE && move != hashMove && isQuiet(move)
+                && MoveGenerator.isLegal(pos, move, pieceMoves);
+    }
+
+    /**
+     * pickBest swaps the best scored move left to the front of what is left
+     * and picks it. Sorting as it goes saves sorting the moves after a
+     * cutoff.
+     */
+    private int pickBest() {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        scores[best] = scores[index];
+        index++;
+        return move;
+    }
+
+    /**
+     * isQuiet checks if a move neither captures nor promotes, which are the
+     * moves killers and countermoves are kept for.
+     *
+     * @param move the packed move
+     * @return whether or not the move is quiet
+     */
+    static boolean isQuiet(int move) {
+        return !Move.isCapture(move) && !Move.isPromotion(move);
+    }
+
+    /**
+     * mvvLva scores a capture by the value of its victim, then by the
+     * cheapness of its attacker. Queen promotions count as winning a queen.
+     *
+     * @param pos the position before the move
+     * @param move the packed move
+     * @return the score, higher for better captures
+     */
+    static int mvvLva(Position pos, int move) {
+        int attacker = Position.typeOf(pos.pieceAt(Move.from(move)));
+        int score = victimValue(pos, move) * 8 - attacker;
+        if (Move.isPromotion(move)) {
+            score += Evaluation.VALUE[Move.promotion(move)] * 8;
+        }
+        return score;
+    }
+
+    /**
+     * victimValue gets the value of the piece a move captures.
+     *
+     * @param pos the position before the move
+     * @param move the packed move
+     * @return the value of the captured piece or 0
+     */
+    static int victimValue(Position pos, int move) {
+        if (Move.flags(move) == Move.EN_PASSANT) {
+            return Evaluation.VALUE[Position.PAWN];
+        }
+        int victim = pos.pieceAt(Move.to(move));
+        return victim == Position.EMPTY ? 0
+                : Evaluation.VALUE[Position.typeOf(victim)];
+    }
+}
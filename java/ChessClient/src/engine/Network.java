@@ -0,0 +1,314 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Network holds the weights of an efficiently updatable neural network
+ * (NNUE) that can score positions in place of the piece-square tables.
+ *
+ * The input layer has one feature for every piece on every square, seen
+ * once from white's side of the board and once from black's. Its output for
+ * each side is kept up to date by an Accumulator as pieces move, which is
+ * why the network is cheap enough to run at every node. The two halves,
+ * side to move first, are clipped to 0..ACTIVATION_MAX and fed through a
+ * small dense hidden layer and a single output.
+ *
+ * All weights are integers. The input and hidden layers use 16 bit weights
+ * and the hidden layer's weights are kept within a byte, so a clipped input
+ * times a weight always fits in 16 bits, which the vector kernel relies on.
+ *
+ * A network file is little endian: the magic number and version, the hidden
+ * sizes, then the input weights and biases, the hidden weights and biases
+ * and the output weights and bias. It is memory mapped to read it.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Network file [seed]
+ * </pre>
+ * writes a network with random weights, which plays badly but is enough to
+ * try the loading and the speed of the evaluation.
+ *
+ * @author Ben Clark
+ */
+public final class Network {
+
+    /**
+     * The number of input features from one side's point of view.
+     */
+    public static final int INPUTS = 12 * 64;
+
+    /**
+     * The most an input or hidden neuron can output.
+     */
+    static final int ACTIVATION_MAX = 255;
+
+    /**
+     * Hidden weights are scaled up by 2^HIDDEN_SHIFT.
+     */
+    static final int HIDDEN_SHIFT = 6;
+
+    /**
+     * The output is in centipawns times OUTPUT_SCALE.
+     */
+    static final int OUTPUT_SCALE = 16;
+
+    private static final int MAGIC = 0x45554E4E;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int DEFAULT_ACCUMULATOR_SIZE = 256;
+    private static final int DEFAULT_HIDDEN_SIZE = 32;
+
+    final int accumulatorSize;
+    final int hiddenSize;
+
+    /**
+     * The input weights, accumulatorSize for every feature.
+     */
+    final short[] inputWeights;
+    final short[] inputBiases;
+
+    /**
+     * The hidden weights, 2 * accumulatorSize for every hidden neuron.
+     */
+    final short[] hiddenWeights;
+    final int[] hiddenBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    final NetworkKernel kernel;
+
+    private Network(int accumulatorSize, int hiddenSize, short[] inputWeights,
+            short[] inputBiases, short[] hiddenWeights, int[] hiddenBiases,
+            short[] outputWeights, int outputBias, NetworkKernel kernel) {
+        this.accumulatorSize = accumulatorSize;
+        this.hiddenSize = hiddenSize;
+        this.inputWeights = inputWeights;
+        this.inputBiases = inputBiases;
+        this.hiddenWeights = hiddenWeights;
+        this.hiddenBiases = hiddenBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+        this.kernel = kernel;
+    }
+
+    /**
+     * load reads a network file through a memory mapped buffer. The network
+     * runs on the vector kernel if this JVM has one and the scalar one
+     * otherwise.
+     *
+     * @param file the network file
+     * @return the network
+     * @throws IOException if the file can't be read or is not a network
+     */
+    public static Network load(String file) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a network file: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY,
+                    0, channel.size());
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) {
+                throw new IOException("Not a network file: " + file);
+            }
+            int accumulatorSize = map.getInt();
+            int hiddenSize = map.getInt();
+            if (accumulatorSize <= 0 || hiddenSize <= 0
+                    || channel.size() != bytes(accumulatorSize, hiddenSize)) {
+                throw new IOException("Network file has the wrong size: "
+                        + file);
+            }
+
+            short[] inputWeights = new short[INPUTS * accumulatorSize];
+            short[] inputBiases = new short[accumulatorSize];
+            short[] hiddenWeights = new short[hiddenSize * 2 * accumulatorSize];
+            int[] hiddenBiases = new int[hiddenSize];
+            short[] outputWeights = new short[hiddenSize];
+            readShorts(map, inputWeights);
+            readShorts(map, inputBiases);
+            readShorts(map, hiddenWeights);
+            map.asIntBuffer().get(hiddenBiases);
+            map.position(map.position() + hiddenBiases.length * 4);
+            readShorts(map, outputWeights);
+            int outputBias = map.getInt();
+
+            for (short weight : hiddenWeights) {
+                if (weight < -127 || weight > 127) {
+                    throw new IOException("Hidden weight out of range: "
+                            + file);
+                }
+            }
+            return new Network(accumulatorSize, hiddenSize, inputWeights,
+                    inputBiases, hiddenWeights, hiddenBiases, outputWeights,
+                    outputBias, NetworkKernel.best());
+        }
+    }
+
+    /**
+     * readShorts copies shorts out of the buffer and moves past them.
+     */
+    private static void readShorts(ByteBuffer buffer, short[] into) {
+        buffer.asShortBuffer().get(into);
+        buffer.position(buffer.position() + into.length * 2);
+    }
+
+    /**
+     * bytes gets the size of a network file.
+     */
+    private static long bytes(int accumulatorSize, int hiddenSize) {
+        return HEADER_BYTES
+                + 2L * INPUTS * accumulatorSize
+                + 2L * accumulatorSize
+                + 2L * hiddenSize * 2 * accumulatorSize
+                + 4L * hiddenSize
+                + 2L * hiddenSize
+                + 4;
+    }
+
+    /**
+     * save writes the network in the format load reads.
+     *
+     * @param file the file to write
+     * @throws IOException if the file can't be written
+     */
+    public void save(String file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes(accumulatorSize,
+                hiddenSize)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(accumulatorSize)
+                .putInt(hiddenSize);
+        for (short weight : inputWeights) {
+            buffer.putShort(weight);
+        }
+        for (short bias : inputBiases) {
+            buffer.putShort(bias);
+        }
+        for (short weight : hiddenWeights) {
+            buffer.putShort(weight);
+        }
+        for (int bias : hiddenBiases) {
+            buffer.putInt(bias);
+        }
+        for (short weight : outputWeights) {
+            buffer.putShort(weight);
+        }
+        buffer.putInt(outputBias);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(Paths.get(file),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * random makes a network of the default size with random weights in the
+     * ranges a trained network would have.
+     *
+     * @param seed the seed of the weights
+     * @return the network
+     */
+    public static Network random(long seed) {
+        Random random = new Random(seed);
+        int accumulatorSize = DEFAULT_ACCUMULATOR_SIZE;
+        int hiddenSize = DEFAULT_HIDDEN_SIZE;
+        short[] inputWeights = new short[INPUTS * accumulatorSize];
+        short[] inputBiases = new short[accumulatorSize];
+        short[] hiddenWeights = new short[hiddenSize * 2 * accumulatorSize];
+        int[] hiddenBiases = new int[hiddenSize];
+        short[] outputWeights = new short[hiddenSize];
+        for (int i = 0; i < inputWeights.length; i++) {
+            inputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        for (int i = 0; i < inputBiases.length; i++) {
+            inputBiases[i] = (short) random.nextInt(128);
+        }
+        for (int i = 0; i < hiddenWeights.length; i++) {
+            hiddenWeights[i] = (short) (random.nextInt(255) - 127);
+        }
+        for (int i = 0; i < hiddenBiases.length; i++) {
+            hiddenBiases[i] = random.nextInt(1 << 12) - (1 << 11);
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(17) - 8);
+        }
+        return new Network(accumulatorSize, hiddenSize, inputWeights,
+                inputBiases, hiddenWeights, hiddenBiases, outputWeights, 0,
+                NetworkKernel.best());
+    }
+
+    /**
+     * withKernel gets this network running on another kernel. The weights
+     * are shared, not copied.
+     *
+     * @param kernel the kernel to run on
+     * @return the network
+     */
+    public Network withKernel(NetworkKernel kernel) {
+        return new Network(accumulatorSize, hiddenSize, inputWeights,
+                inputBiases, hiddenWeights, hiddenBiases, outputWeights,
+                outputBias, kernel);
+    }
+
+    /**
+     * getKernel gets the kernel the network runs on.
+     *
+     * @return the kernel
+     */
+    public NetworkKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * feature gets the index of the input feature of a piece on a square
+     * seen from one side. Black sees the board with the colors swapped and
+     * the ranks mirrored, so both sides learn from the same weights.
+     *
+     * @param perspective the side looking at the board
+     * @param piece the piece
+     * @param sq the square of the piece
+     * @return the feature index
+     */
+    static int feature(int perspective, int piece, int sq) {
+        if (perspective == Position.BLACK) {
+            piece = Position.piece(Position.colorOf(piece) ^ 1,
+                    Position.typeOf(piece));
+            sq ^= 56;
+        }
+        return piece * 64 + sq;
+    }
+
+    /**
+     * Entry point of the random network writer.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 1) {
+                throw new IllegalArgumentException("Missing file");
+            }
+            long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+            random(seed).save(args[0]);
+            Network network = load(args[0]);
+            Position pos = new Position();
+            pos.setNetwork(network);
+            System.out.println("Wrote " + args[0] + "  Kernel: "
+                    + network.getKernel().getName() + "  Start position: "
+                    + Evaluation.evaluate(pos));
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: Network file [seed]");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package engine;
+
+/**
+ * NetworkKernel is the arithmetic a Network runs on: adding and subtracting
+ * rows of input weights in an accumulator and running the dense layers.
+ * ScalarKernel does it one number at a time and runs anywhere.
+ * VectorKernel uses SIMD instructions through the Vector API, which needs
+ * JDK 16 or newer and --add-modules jdk.incubator.vector, so it is kept out
+ * of the Java 8 sources in src-vector.
+ *
+ * @author Ben Clark
+ */
+public interface NetworkKernel {
+
+    /**
+     * add adds a row of weights to an accumulator.
+     *
+     * @param accumulator the accumulator
+     * @param weights the weights
+     * @param offset where the row starts in weights
+     */
+    void add(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * sub subtracts a row of weights from an accumulator.
+     *
+     * @param accumulator the accumulator
+     * @param weights the weights
+     * @param offset where the row starts in weights
+     */
+    void sub(short[] accumulator, short[] weights, int offset);
+
+    /**
+     * addSub adds one row of weights to an accumulator and subtracts
+     * another in one pass, which is what moving a piece does.
+     *
+     * @param accumulator the accumulator
+     * @param weights the weights
+     * @param addOffset where the row to add starts in weights
+     * @param subOffset where the row to subtract starts in weights
+     */
+    void addSub(short[] accumulator, short[] weights, int addOffset,
+            int subOffset);
+
+    /**
+     * forward runs the layers after the accumulator.
+     *
+     * @param network the network
+     * @param us the accumulator of the side to move
+     * @param them the accumulator of the other side
+     * @param input room for the clipped accumulators, 2 * accumulatorSize
+     * long
+     * @return the output of the network before it is scaled
+     */
+    int forward(Network network, short[] us, short[] them, short[] input);
+
+    /**
+     * getName gets the name of the kernel.
+     *
+     * @return the name
+     */
+    String getName();
+
+    /**
+     * scalar gets the kernel that runs anywhere.
+     *
+     * @return the scalar kernel
+     */
+    static NetworkKernel scalar() {
+        return ScalarKernel.INSTANCE;
+    }
+
+    /**
+     * vector gets the SIMD kernel if it was compiled in and this JVM was
+     * started with the Vector API.
+     *
+     * @return the vector kernel or null if it is not available
+     */
+    static NetworkKernel vector() {
+        try {
+            return (NetworkKernel) Class.forName("engine.VectorKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * best gets the vector kernel if it is available and the scalar one
+     * otherwise.
+     *
+     * @return the kernel
+     */
+    static NetworkKernel best() {
+        NetworkKernel vector = vector();
+        return vector != null ? vector : scalar();
+    }
+}
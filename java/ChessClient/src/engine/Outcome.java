@@ -0,0 +1,53 @@
+package engine;
+
+/**
+ * Outcome is how a game stands after a move: still going, won by checkmate
+ * or drawn by one of the four draw rules. The window and the headless match
+ * runner both end their games with it so they always agree.
+ *
+ * @author Ben Clark
+ */
+public enum Outcome {
+
+    NONE,
+    CHECKMATE,
+    INSUFFICIENT_MATERIAL,
+    STALEMATE,
+    FIFTY_MOVES,
+    REPETITION;
+
+    /**
+     * of works out the outcome of a position. Checkmate happens when the side
+     * to move has no legal move and is in check, and stalemate when it has
+     * none and is not. The game is also drawn when neither side can mate,
+     * after 100 halfmoves without a capture or pawn move, or when the
+     * position has already happened twice before.
+     *
+     * @param pos the position
+     * @param legalMoveCount how many legal moves the side to move has
+     * @return the outcome
+     */
+    public static Outcome of(Position pos, int legalMoveCount) {
+        if (legalMoveCount == 0 && pos.inCheck()) {
+            return CHECKMATE;
+        } else if (pos.insufficientMaterial()) {
+            return INSUFFICIENT_MATERIAL;
+        } else if (legalMoveCount == 0) {
+            return STALEMATE;
+        } else if (pos.getHalfmoveClock() >= 100) {
+            return FIFTY_MOVES;
+        } else if (pos.repetitions() >= 2) {
+            return REPETITION;
+        }
+        return NONE;
+    }
+
+    /**
+     * isDraw checks if the outcome ends the game in a draw.
+     *
+     * @return whether or not the game is drawn
+     */
+    public boolean isDraw() {
+        return this != NONE && this != CHECKMATE;
+    }
+}
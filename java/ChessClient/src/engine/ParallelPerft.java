@@ -0,0 +1,153 @@
+package engine;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * ParallelPerft splits a perft count across a ForkJoinPool. Every root move
+ * and every reply to it becomes its own task, so even positions with few root
+ * moves keep all the workers busy. Below the split the counting is the
+ * normal sequential Perft, and all the workers share one PerftTable.
+ *
+ * @author Ben Clark
+ */
+public final class ParallelPerft {
+
+    /**
+     * How many plies from the root are split into tasks.
+     */
+    private static final int SPLIT_PLIES = 2;
+
+    private final ForkJoinPool pool;
+    private final PerftTable table;
+    private final ThreadLocal<Worker> workers;
+
+    /**
+     * Every worker that has counted so far, in the order they started. The
+     * pool can start more threads than it was asked for to make up for
+     * blocked ones, so there can be more of them than threads.
+     */
+    private final List<Worker> started = new CopyOnWriteArrayList<>();
+
+    /**
+     * Worker is the Perft and node count of one worker thread. The count is
+     * only written by its own thread.
+     */
+    private static final class Worker {
+
+        private final Perft perft;
+        private long nodes;
+
+        Worker(Perft perft) {
+            this.perft = perft;
+        }
+    }
+
+    /**
+     * Constructs a ParallelPerft.
+     *
+     * @param threads the number of worker threads
+     * @param maxDepth the deepest count that will be asked for
+     * @param table the shared table or null to count without one
+     */
+    public ParallelPerft(int threads, int maxDepth, PerftTable table) {
+        this.pool = new ForkJoinPool(threads);
+        this.table = table;
+        this.workers = ThreadLocal.withInitial(() -> {
+            Worker worker = new Worker(new Perft(maxDepth, table));
+            started.add(worker);
+            return worker;
+        });
+    }
+
+    /**
+     * count counts the leaf nodes below a position. The position is not
+     * changed, every task works on its own copy.
+     *
+     * @param pos the position to count from
+     * @param depth how many plies to look ahead
+     * @return the number of leaf nodes
+     */
+    public long count(Position pos, int depth) {
+        Position root = new Position();
+        root.copyFrom(pos);
+        return pool.invoke(new Split(root, depth, SPLIT_PLIES));
+    }
+
+    /**
+     * getThreadNodes gets how many nodes each worker counted.
+     *
+     * @return the node count of every worker thread
+     */
+    public long[] getThreadNodes() {
+        long[] nodes = new long[started.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = started.get(i).nodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * shutdown stops the worker threads.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Split counts one subtree, either by splitting it into a task per move
+     * or by counting it on the current worker.
+     */
+    private final class Split extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Position pos;
+        private final int depth;
+        private final int splitsLeft;
+
+        Split(Position pos, int depth, int splitsLeft) {
+            this.pos = pos;
+            this.depth = depth;
+            this.splitsLeft = splitsLeft;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitsLeft == 0 || depth <= 2) {
+                Worker worker = workers.get();
+                long nodes = worker.perft.count(pos, depth);
+                worker.nodes += nodes;
+                return nodes;
+            }
+            if (table != null) {
+                long nodes = table.probe(pos.getKey(), depth);
+                if (nodes >= 0) {
+                    return nodes;
+                }
+            }
+
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            int size = MoveGenerator.generate(pos, moves);
+            Split[] children = new Split[size];
+            for (int i = 0; i < size; i++) {
+                Position child = new Position();
+                child.copyFrom(pos);
+                child.makeMove(moves[i]);
+                children[i] = new Split(child, depth - 1, splitsLeft - 1);
+            }
+            invokeAll(children);
+
+            long nodes = 0;
+            for (Split child : children) {
+                nodes += child.join();
+            }
+            if (table != null) {
+                table.store(pos.getKey(), depth, nodes);
+            }
+            return nodes;
+        }
+    }
+}
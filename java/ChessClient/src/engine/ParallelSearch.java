@@ -0,0 +1,410 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelSearch runs a Lazy SMP search. Every thread searches the same root
+ * with its own Search and the threads only share the transposition table.
+ * What one thread stores there saves the others work, and helper threads
+ * start on odd or even depths so they spread out over the tree instead of
+ * searching the same nodes at the same time.
+ *
+ * The threads are platform threads in a pool of their own, so searching
+ * never runs on the JavaFX application thread or the common fork/join pool.
+ * When the main thread stops the helpers are stopped too.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.ParallelSearch depth threads... [fen]
+ * </pre>
+ * prints the time to reach the depth and the nodes of every thread for each
+ * thread count, for example 8 1 2 4 8 16.
+ *
+ * @author Ben Clark
+ */
+public final class ParallelSearch {
+
+    private final TranspositionTable table;
+    private final Search[] searches;
+    private final ExecutorService pool;
+
+    /**
+     * Constructs a ParallelSearch with pawn tables of the default size.
+     *
+     * @param threads the number of search threads
+     * @param table the transposition table all the threads share
+     */
+    public ParallelSearch(int threads, TranspositionTable table) {
+        this(threads, table, PawnTable.DEFAULT_MEGABYTES);
+    }
+
+    /**
+     * Constructs a ParallelSearch.
+     *
+     * @param threads the number of search threads
+     * @param table the transposition table all the threads share
+     * @param pawnMegabytes the size of the pawn table every thread gets to
+     * itself
+     */
+    public ParallelSearch(int threads, TranspositionTable table,
+            int pawnMegabytes) {
+        this.table = table;
+        this.searches = new Search[Math.max(threads, 1)];
+        for (int i = 0; i < searches.length; i++) {
+            searches[i] = new Search(table, new PawnTable(pawnMegabytes));
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(searches.length, r -> {
+            Thread thread = new Thread(r, "search-"
+                    + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * search looks for the best move of a position on every thread and
+     * waits until they are done. The node budget is split evenly between the
+     * threads.
+     *
+     * @param root the position to search, which is not changed
+     * @param maxDepth the deepest iteration to search
+     * @param maxNodes the most nodes to search or 0 for no limit
+     * @param maxMillis the most time to search in milliseconds or 0 for no
+     * limit
+     * @return the best move or Move.NONE if there is no legal move
+     */
+    public int search(Position root, int maxDepth, long maxNodes,
+            long maxMillis) {
+        reset();
+        return run(root, maxDepth, maxNodes, maxMillis);
+    }
+
+    /**
+     * reset clears the stop requests of every thread. UCI calls it on its
+     * input thread before it hands the search to another thread, so a stop
+     * that comes in before the search starts still stops it.
+     */
+    void reset() {
+        for (Search search : searches) {
+            search.reset();
+        }
+    }
+
+    /**
+     * run is search without clearing stop requests first.
+     *
+     * @param root the position to search, which is not changed
+     * @param maxDepth the deepest iteration to search
+     * @param maxNodes the most nodes to search or 0 for no limit
+     * @param maxMillis the most time to search in milliseconds or 0 for no
+     * limit
+     * @return the best move or Move.NONE if there is no legal move
+     */
+    int run(Position root, int maxDepth, long maxNodes, long maxMillis) {
+        table.newSearch();
+        long threadNodes = maxNodes > 0
+                ? Math.max(1, maxNodes / searches.length) : 0;
+        List<Future<Integer>> results = new ArrayList<>(searches.length);
+        for (int i = 0; i < searches.length; i++) {
+            Search search = searches[i];
+            //Every other helper starts a ply deeper
+            int startDepth = 1 + (i & 1);
+            results.add(pool.submit(() -> search.iterate(root, startDepth,
+                    maxDepth, threadNodes, maxMillis)));
+        }
+        try {
+            results.get(0).get();
+        } catch (InterruptedException e) {
+            System.err.println("Search interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Search failed: " + e.getCause());
+            e.getCause().printStackTrace();
+        }
+        stop();
+        awaitAll(results);
+        return best().getBestMove();
+    }
+
+    /**
+     * awaitAll waits until every thread has finished, so none of them is
+     * still using its Search when the next search starts. Failures are
+     * ignored here, since run has reported the main thread's, and an
+     * interrupt is kept for the caller once the wait is over.
+     *
+     * @param results the futures of the threads
+     */
+    private static void awaitAll(List<Future<Integer>> results) {
+        boolean interrupted = Thread.interrupted();
+        for (Future<Integer> result : results) {
+            while (true) {
+                try {
+                    result.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * best picks the thread that finished the deepest iteration, preferring
+     * the main thread.
+     */
+    private Search best() {
+        Search best = searches[0];
+        for (Search search : searches) {
+            if (search.getDepth() > best.getDepth()) {
+                best = search;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * setListener sets who is told when the main thread finishes an
+     * iteration.
+     *
+     * @param listener the listener or null for none
+     */
+    public void setListener(SearchListener listener) {
+        searches[0].setListener(listener);
+    }
+
+    /**
+     * setNetwork sets the Network every thread scores positions with.
+     *
+     * @param network the network or null for the piece-square tables
+     */
+    public void setNetwork(Network network) {
+        for (Search search : searches) {
+            search.setNetwork(network);
+        }
+    }
+
+    /**
+     * getHashfull estimates how full the shared table is.
+     *
+     * @return how many of every thousand entries are from this search
+     */
+    public int getHashfull() {
+        return table.hashfull();
+    }
+
+    /**
+     * stop asks every thread to stop as soon as it can. It is safe to call
+     * from another thread.
+     */
+    public void stop() {
+        for (Search search : searches) {
+            search.stop();
+        }
+    }
+
+    /**
+     * getPonderMove gets the reply the thread whose move was picked expects,
+     * which the opponent's time can be spent thinking about.
+     *
+     * @return the packed move or Move.NONE if there is none
+     */
+    public int getPonderMove() {
+        Search best = best();
+        return best.getPvLength() > 1
+                && best.getPvMove(0) == best.getBestMove()
+                ? best.getPvMove(1) : Move.NONE;
+    }
+
+    /**
+     * getScore gets the score of the thread whose move was picked.
+     *
+     * @return the score in centipawns from the side to move's point of view
+     */
+    public int getScore() {
+        return best().getScore();
+    }
+
+    /**
+     * getDepth gets the deepest iteration any thread finished.
+     *
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return best().getDepth();
+    }
+
+    /**
+     * getPv gets the best line of the thread whose move was picked.
+     *
+     * @return the packed moves of the line
+     */
+    public MoveList getPv() {
+        return best().getPv();
+    }
+
+    /**
+     * getNodes gets how many nodes all the threads searched together.
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * getQuiescenceNodes gets how many of the nodes of all the threads were
+     * in the quiescence search.
+     *
+     * @return the number of quiescence nodes
+     */
+    public long getQuiescenceNodes() {
+        long nodes = 0;
+        for (Search search : searches) {
+            nodes += search.getQuiescenceNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * getPawnHits gets how many pawn table probes of all the threads found
+     * their position.
+     *
+     * @return the number of hits
+     */
+    public long getPawnHits() {
+        long hits = 0;
+        for (Search search : searches) {
+            hits += search.getPawnHits();
+        }
+        return hits;
+    }
+
+    /**
+     * getPawnMisses gets how many pawn table probes of all the threads had to
+     * work the pawn structure out.
+     *
+     * @return the number of misses
+     */
+    public long getPawnMisses() {
+        long misses = 0;
+        for (Search search : searches) {
+            misses += search.getPawnMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * getThreadNodes gets how many nodes each thread searched.
+     *
+     * @return the node count of every thread, the main thread first
+     */
+    public long[] getThreadNodes() {
+        long[] nodes = new long[searches.length];
+        for (int i = 0; i < searches.length; i++) {
+            nodes[i] = searches[i].getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * getThreads gets the number of search threads.
+     *
+     * @return the number of threads
+     */
+    public int getThreads() {
+        return searches.length;
+    }
+
+    /**
+     * shutdown stops the threads of the pool.
+     */
+    public void shutdown() {
+        stop();
+        pool.shutdown();
+    }
+
+    /**
+     * reportPawnTable prints the hits and misses of the pawn tables and the
+     * hit rate.
+     *
+     * @param hits the number of hits
+     * @param misses the number of misses
+     */
+    static void reportPawnTable(long hits, long misses) {
+        long probes = Math.max(1, hits + misses);
+        System.out.println(String.format(
+                "Pawn table: %d hits  %d misses  %.1f%% hit rate", hits,
+                misses, 100.0 * hits / probes));
+    }
+
+    /**
+     * Entry point of the time to depth measurement.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw new IllegalArgumentException("Missing arguments");
+            }
+            int depth = Integer.parseInt(args[0]);
+            int first = 1;
+            while (first < args.length && args[first].matches("\\d+")) {
+                first++;
+            }
+            Position pos = new Position();
+            if (first < args.length) {
+                StringBuilder fen = new StringBuilder();
+                for (int i = first; i < args.length; i++) {
+                    fen.append(args[i]).append(' ');
+                }
+                Fen.load(pos, fen.toString());
+            }
+
+            //Warm the JIT up so the first thread count isn't slowed down
+            ParallelSearch warmup = new ParallelSearch(1,
+                    new TranspositionTable(64));
+            warmup.search(pos, depth, 0, 0);
+            warmup.shutdown();
+
+            for (int i = 1; i < first; i++) {
+                int threads = Integer.parseInt(args[i]);
+                ParallelSearch search = new ParallelSearch(threads,
+                        new TranspositionTable(64));
+                long start = System.nanoTime();
+                int move = search.search(pos, depth, 0, 0);
+                long time = System.nanoTime() - start;
+                search.shutdown();
+                System.out.println("Threads: " + threads + "  Move: "
+                        + Move.toString(move) + "  Score: "
+                        + search.getScore());
+                Perft.reportThreads(search.getThreadNodes(), time);
+                Perft.report(search.getNodes(), time);
+                System.out.println(String.format("Quiescence: %.1f%% of nodes",
+                        100.0 * search.getQuiescenceNodes()
+                        / Math.max(1, search.getNodes())));
+                reportPawnTable(search.getPawnHits(), search.getPawnMisses());
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: ParallelSearch depth threads... [fen]");
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package engine;
+
+/**
+ * PawnTable remembers the pawn structure score of positions by their pawn
+ * key. Pawns move much less often than the other pieces, so most positions
+ * a search evaluates have pawns it has already scored, and looking the score
+ * up saves working out doubled, isolated and passed pawns again.
+ *
+ * Each Search has a table of its own, so there are no other threads to
+ * guard against. The table counts its hits and misses so the hit rate can
+ * be reported with the node count.
+ *
+ * @author Ben Clark
+ */
+public final class PawnTable {
+
+    /**
+     * The size of the table a Search makes when it isn't given one, in
+     * megabytes.
+     */
+    public static final int DEFAULT_MEGABYTES = 1;
+
+    /**
+     * A key and a score.
+     */
+    private static final int ENTRY_BYTES = 12;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs a table that uses about the given number of megabytes. The
+     * number of entries is rounded down to a power of two.
+     *
+     * @param megabytes the size of the table
+     */
+    public PawnTable(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, megabytes) * 1024 * 1024
+                / ENTRY_BYTES);
+        int size = (int) Math.min(entries, 1 << 30);
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * probe gets the pawn structure score of a position, working it out and
+     * saving it if it isn't in the table. An empty entry has key 0, which is
+     * also the key of a board without pawns, but the score of an empty entry
+     * is 0 too so that is still right.
+     *
+     * @param pos the position
+     * @return the midgame and endgame scores from white's point of view,
+     * packed by Evaluation.pair
+     */
+    public int probe(Position pos) {
+        long key = pos.getPawnKey();
+        int index = (int) key & mask;
+        if (keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+        misses++;
+        int score = Evaluation.pawnStructure(pos);
+        keys[index] = key;
+        scores[index] = score;
+        return score;
+    }
+
+    /**
+     * clear empties the table and its counters.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0L;
+            scores[i] = 0;
+        }
+        resetCounters();
+    }
+
+    /**
+     * resetCounters sets the hit and miss counts back to 0.
+     */
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    /**
+     * getHits gets how many probes found their position.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * getMisses gets how many probes had to work the score out.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
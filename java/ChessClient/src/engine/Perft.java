@@ -0,0 +1,309 @@
+package engine;
+
+/**
+ * Perft counts the leaf nodes of the move tree to a fixed depth. The counts of
+ * well known positions are published, so perft both proves the move
+ * generator is correct and measures how fast it runs.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Perft depth [fen]
+ * java -cp ChessClient.jar engine.Perft divide depth [fen]
+ * java -cp ChessClient.jar engine.Perft suite
+ * </pre>
+ * Any of them can be given -threads n to count on n threads and -hash mb to
+ * share a table of that many megabytes, for example
+ * <pre>
+ * java -cp ChessClient.jar engine.Perft -threads 8 -hash 256 7
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+public final class Perft {
+
+    /**
+     * Positions with known node counts. Each entry is a FEN, a depth and the
+     * expected count. They cover castling through check, en passant pins,
+     * promotions and discovered checks.
+     */
+    static final String[][] SUITE = {
+        {Fen.START, "5", "4865609"},
+        {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "4", "4085603"},
+        {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "6", "11030083"},
+        {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "5", "15833292"},
+        {"r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1",
+            "5", "15833292"},
+        {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "4", "2103487"},
+        {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "4", "3894594"},
+        {"8/8/1k6/2b5/2pP4/8/5K2/8 b - d3 0 1", "6", "1440467"},
+        {"8/8/1k6/8/2pP4/8/5BK1/8 b - d3 0 1", "6", "824064"},
+        {"3k4/3p4/8/K1P4r/8/8/8/8 b - - 0 1", "6", "1134888"},
+        {"8/8/4k3/8/2p5/8/B2P2K1/8 w - - 0 1", "6", "1015133"},
+        {"5k2/8/8/8/8/8/8/4K2R w K - 0 1", "6", "661072"},
+        {"3k4/8/8/8/8/8/8/R3K3 w Q - 0 1", "6", "803711"},
+        {"r3k2r/1b4bq/8/8/8/8/7B/R3K2R w KQkq - 0 1", "4", "1274206"},
+        {"8/8/2k5/5q2/5n2/8/5K2/8 b - - 0 1", "4", "23527"},
+        {"r3k2r/8/3Q4/8/8/5q2/8/R3K2R b KQkq - 0 1", "4", "1720476"},
+        {"2K2r2/4P3/8/8/8/8/8/3k4 w - - 0 1", "6", "3821001"},
+        {"8/P1k5/K7/8/8/8/8/8 w - - 0 1", "6", "92683"},
+    };
+
+    /**
+     * One move buffer per remaining depth so counting never allocates.
+     */
+    private final int[][] moves;
+
+    /**
+     * The table of counted positions, or null to count without one.
+     */
+    private final PerftTable table;
+
+    /**
+     * Constructs a Perft that can count up to the given depth.
+     *
+     * @param maxDepth the deepest count this Perft will be asked for
+     */
+    public Perft(int maxDepth) {
+        this(maxDepth, null);
+    }
+
+    /**
+     * Constructs a Perft that can count up to the given depth and looks up
+     * positions it has already counted in a table.
+     *
+     * @param maxDepth the deepest count this Perft will be asked for
+     * @param table the table of counted positions or null for none
+     */
+    public Perft(int maxDepth, PerftTable table) {
+        moves = new int[Math.max(maxDepth, 1) + 1][MoveGenerator.MAX_MOVES];
+        this.table = table;
+    }
+
+    /**
+     * count counts the leaf nodes below a position. The position is played
+     * on with makeMove and unmakeMove and is left as it was.
+     *
+     * @param pos the position to count from
+     * @param depth how many plies to look ahead
+     * @return the number of leaf nodes
+     */
+    public long count(Position pos, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+        int[] list = moves[depth];
+        int size = MoveGenerator.generate(pos, list);
+        //The moves are legal so the last ply only has to be counted
+        if (depth == 1) {
+            return size;
+        }
+        if (table != null) {
+            long nodes = table.probe(pos.getKey(), depth);
+            if (nodes >= 0) {
+                return nodes;
+            }
+        }
+        long nodes = 0;
+        for (int i = 0; i < size; i++) {
+            pos.makeMove(list[i]);
+            nodes += count(pos, depth - 1);
+            pos.unmakeMove();
+        }
+        if (table != null) {
+            table.store(pos.getKey(), depth, nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * divide counts the leaf nodes below every root move and prints each one.
+     * Comparing the output with another engine shows which move has the
+     * wrong count.
+     *
+     * @param pos the position to count from
+     * @param depth how many plies to look ahead
+     * @return the total number of leaf nodes
+     */
+    public long divide(Position pos, int depth) {
+        int[] list = new int[MoveGenerator.MAX_MOVES];
+        int size = MoveGenerator.generate(pos, list);
+        long nodes = 0;
+        for (int i = 0; i < size; i++) {
+            pos.makeMove(list[i]);
+            long moveNodes = count(pos, depth - 1);
+            pos.unmakeMove();
+            System.out.println(Move.toString(list[i]) + ": " + moveNodes);
+            nodes += moveNodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * Entry point of the perft tool.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int threads = 1;
+            int hash = 0;
+            int first = 0;
+            while (args.length > first + 1 && args[first].startsWith("-")) {
+                if (args[first].equals("-threads")) {
+                    threads = Integer.parseInt(args[first + 1]);
+                } else if (args[first].equals("-hash")) {
+                    hash = Integer.parseInt(args[first + 1]);
+                } else {
+                    throw new IllegalArgumentException("Unknown option: "
+                            + args[first]);
+                }
+                first += 2;
+            }
+            if (threads < 1 || hash < 0) {
+                throw new IllegalArgumentException("Bad -threads or -hash");
+            }
+            PerftTable table = hash > 0 ? new PerftTable(hash) : null;
+
+            if (args.length == first) {
+                usage();
+            } else if (args[first].equals("suite")) {
+                System.exit(runSuite(threads, hash) ? 0 : 1);
+            } else if (args[first].equals("divide") && args.length > first + 1) {
+                Position pos = load(args, first + 2);
+                int depth = Integer.parseInt(args[first + 1]);
+                long start = System.nanoTime();
+                long nodes = new Perft(depth, table).divide(pos, depth);
+                report(nodes, System.nanoTime() - start);
+            } else {
+                Position pos = load(args, first + 1);
+                int depth = Integer.parseInt(args[first]);
+                if (threads == 1) {
+                    long start = System.nanoTime();
+                    long nodes = new Perft(depth, table).count(pos, depth);
+                    report(nodes, System.nanoTime() - start);
+                } else {
+                    ParallelPerft perft = new ParallelPerft(threads, depth,
+                            table);
+                    long start = System.nanoTime();
+                    long nodes = perft.count(pos, depth);
+                    long time = System.nanoTime() - start;
+                    perft.shutdown();
+                    reportThreads(perft.getThreadNodes(), time);
+                    report(nodes, time);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            usage();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * runSuite counts every position of SUITE on one thread without a table
+     * and compares it to the published count.
+     *
+     * @return whether or not every count matched
+     */
+    static boolean runSuite() {
+        return runSuite(1, 0);
+    }
+
+    /**
+     * runSuite counts every position of SUITE and compares it to the
+     * published count. Each position gets a fresh table so one count can't
+     * hide a wrong one from another position.
+     *
+     * @param threads the number of threads to count on
+     * @param hash the size of the table in megabytes or 0 for none
+     * @return whether or not every count matched
+     */
+    static boolean runSuite(int threads, int hash) {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (String[] test : SUITE) {
+            Position pos = new Position();
+            Fen.load(pos, test[0]);
+            int depth = Integer.parseInt(test[1]);
+            long expected = Long.parseLong(test[2]);
+            PerftTable table = hash > 0 ? new PerftTable(hash) : null;
+            long start = System.nanoTime();
+            long nodes;
+            if (threads == 1) {
+                nodes = new Perft(depth, table).count(pos, depth);
+            } else {
+                ParallelPerft perft = new ParallelPerft(threads, depth, table);
+                nodes = perft.count(pos, depth);
+                perft.shutdown();
+            }
+            long time = System.nanoTime() - start;
+            totalNodes += nodes;
+            totalTime += time;
+            boolean ok = nodes == expected;
+            passed &= ok;
+            System.out.println((ok ? "ok   " : "FAIL ") + test[0] + " depth "
+                    + depth + ": " + nodes + (ok ? "" : " expected "
+                    + expected));
+        }
+        report(totalNodes, totalTime);
+        System.out.println(passed ? "All perft counts match"
+                : "Some perft counts are wrong");
+        return passed;
+    }
+
+    /**
+     * load reads the FEN that starts at args[from], or the start position if
+     * there is none. A FEN on the command line may be split over several
+     * arguments.
+     */
+    private static Position load(String[] args, int from) {
+        Position pos = new Position();
+        if (args.length > from) {
+            StringBuilder fen = new StringBuilder();
+            for (int i = from; i < args.length; i++) {
+                fen.append(args[i]).append(' ');
+            }
+            Fen.load(pos, fen.toString());
+        }
+        return pos;
+    }
+
+    /**
+     * report prints a node count with the time taken and nodes per second.
+     *
+     * @param nodes the number of nodes counted
+     * @param nanos how long counting took
+     */
+    static void report(long nodes, long nanos) {
+        long millis = Math.max(nanos / 1000000, 1);
+        System.out.println("Nodes: " + nodes + "  Time: " + millis
+                + " ms  NPS: " + nodes * 1000 / millis);
+    }
+
+    /**
+     * reportThreads prints how many nodes each thread counted and how fast.
+     * Nodes found in the table are not counted again, so with a table the
+     * threads add up to less than the total.
+     *
+     * @param threadNodes the nodes counted by each thread
+     * @param nanos how long counting took
+     */
+    static void reportThreads(long[] threadNodes, long nanos) {
+        long millis = Math.max(nanos / 1000000, 1);
+        for (int i = 0; i < threadNodes.length; i++) {
+            System.out.println("Thread " + i + ": " + threadNodes[i]
+                    + " nodes  NPS: " + threadNodes[i] * 1000 / millis);
+        }
+    }
+
+    private static void usage() {
+        System.out.println("Usage: Perft [-threads n] [-hash mb] depth [fen]");
+        System.out.println("       Perft [-hash mb] divide depth [fen]");
+        System.out.println("       Perft [-threads n] [-hash mb] suite");
+    }
+}
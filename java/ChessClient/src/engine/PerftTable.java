@@ -0,0 +1,64 @@
+package engine;
+
+/**
+ * PerftTable remembers node counts of positions that have already been
+ * counted so a transposition is only counted once. Many threads read and
+ * write it without locks: every entry is stored as the key XORed with the
+ * data next to the data itself, so an entry torn by two threads writing at
+ * the same time no longer matches its key and is just treated as a miss.
+ *
+ * @author Ben Clark
+ */
+public final class PerftTable {
+
+    /**
+     * Two longs per entry, the checked key and the data. The data is the
+     * node count shifted up by 8 bits with the depth in the low 8 bits.
+     */
+    private final long[] entries;
+    private final int mask;
+
+    /**
+     * Constructs a table that uses about the given number of megabytes. The
+     * number of entries is rounded down to a power of two.
+     *
+     * @param megabytes the size of the table
+     */
+    public PerftTable(int megabytes) {
+        long wanted = Math.max(1L, (long) megabytes * 1024 * 1024 / 16);
+        int size = Integer.highestOneBit((int) Math.min(wanted, 1 << 30));
+        entries = new long[size * 2];
+        mask = size - 1;
+    }
+
+    /**
+     * probe looks up the node count of a position at a depth.
+     *
+     * @param key the Zobrist key of the position
+     * @param depth the depth of the count
+     * @return the node count or -1 if it is not in the table
+     */
+    public long probe(long key, int depth) {
+        int index = ((int) key & mask) << 1;
+        long data = entries[index + 1];
+        if ((entries[index] ^ data) == key && (data & 0xFF) == depth) {
+            return data >>> 8;
+        }
+        return -1;
+    }
+
+    /**
+     * store saves the node count of a position at a depth, replacing
+     * whatever was in its slot.
+     *
+     * @param key the Zobrist key of the position
+     * @param depth the depth of the count
+     * @param nodes the node count
+     */
+    public void store(long key, int depth, long nodes) {
+        int index = ((int) key & mask) << 1;
+        long data = (nodes << 8) | depth;
+        entries[index] = key ^ data;
+        entries[index + 1] = data;
+    }
+}
@@ -0,0 +1,480 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * PgnReader reads the games of a PGN file one move at a time. nextGame
+ * reads a game's tags and sets up its start position, then nextMove reads
+ * each move in turn and plays it on getPosition:
+ * <pre>
+ * try (PgnReader reader = new PgnReader("games.pgn")) {
+ *     while (reader.nextGame()) {
+ *         for (int move; (move = reader.nextMove()) != Move.NONE;) {
+ *             ...
+ *         }
+ *     }
+ * }
+ * </pre>
+ * Comments, variations, NAGs and move numbers are skipped, and a game ends
+ * at its result, at the tags of the next game or at the end of the file.
+ *
+ * The file is read through one buffer that is refilled as it is used up,
+ * so a file of many GB takes no more memory than a small one. The bytes
+ * are scanned by hand and the moves handed to San as they lie in the
+ * buffer, so the only objects made per game are the tags, and none per
+ * move. A reader can also read PGN already in memory, such as a chunk of a
+ * file handed to another thread.
+ *
+ * @author Ben Clark
+ */
+public final class PgnReader implements Closeable {
+
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int MAX_TAGS = 16;
+
+    private final FileChannel channel;
+    private byte[] text;
+    private int next;
+    private int limit;
+    private boolean end;
+
+    private final Position pos = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private String[] tagNames = new String[MAX_TAGS];
+    private String[] tagValues = new String[MAX_TAGS];
+    private int tags;
+    private long games;
+    private String result;
+
+    /**
+     * Whether the moves of the current game are still being read.
+     */
+    private boolean inGame;
+
+    /**
+     * Why the current game can't be read, such as a FEN tag that is not a
+     * position, or null.
+     */
+    private String broken;
+
+    /**
+     * Constructs a PgnReader that reads a file.
+     *
+     * @param file the PGN file
+     * @throws IOException if the file can't be opened
+     */
+    public PgnReader(String file) throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.READ);
+        text = new byte[BUFFER_BYTES];
+    }
+
+    /**
+     * Constructs a PgnReader that reads PGN in memory. The escapes in tag
+     * values are undone where they are, so text can be changed.
+     *
+     * @param text the PGN
+     * @param length how many bytes of text to read
+     */
+    public PgnReader(byte[] text, int length) {
+        channel = null;
+        this.text = text;
+        limit = length;
+        end = true;
+    }
+
+    /**
+     * nextGame skips what is left of the current game, then reads the tags
+     * of the next one and sets up its start position, from the FEN tag if it
+     * has one.
+     *
+     * @return whether or not there was another game
+     * @throws IOException if the file can't be read
+     */
+    public boolean nextGame() throws IOException {
+        while (inGame) {
+            int length = nextToken();
+            if (length < 0) {
+                inGame = false;
+            } else {
+                next += length;
+            }
+        }
+        tags = 0;
+        result = "*";
+        broken = null;
+        String fen = null;
+        int c;
+        while ((c = skipSpace()) >= 0) {
+            if (c == '[') {
+                String name = readTag();
+                if ("FEN".equals(name)) {
+                    fen = tagValues[tags - 1];
+                }
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';' || c == '%') {
+                skipPast('\n');
+            } else {
+                break;
+            }
+        }
+        if (c < 0 && tags == 0) {
+            return false;
+        }
+        games++;
+        inGame = true;
+        try {
+            if (fen == null) {
+                pos.setStartPosition();
+            } else {
+                Fen.load(pos, fen);
+            }
+        } catch (IllegalArgumentException e) {
+            broken = e.getMessage();
+        }
+        return true;
+    }
+
+    /**
+     * nextMove reads the next move of the current game and plays it.
+     *
+     * @return the packed move or Move.NONE at the end of the game
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the move is not legal, or the game
+     * has no start position; nextGame goes on to the next game
+     */
+    public int nextMove() throws IOException {
+        while (inGame) {
+            int length = nextToken();
+            if (length < 0) {
+                inGame = false;
+                break;
+            }
+            int start = next;
+            int stop = next + length;
+            next = stop;
+            if (isResult(text, start, stop)) {
+                result = new String(text, start, length,
+                        StandardCharsets.ISO_8859_1);
+                inGame = false;
+                break;
+            }
+            start = skipMoveNumber(text, start, stop);
+            if (start == stop || text[start] == '$') {
+                continue;
+            }
+            if (broken != null) {
+                throw new IllegalArgumentException(broken + " in game "
+                        + games);
+            }
+            int move = San.parse(pos, text, start, stop, moves);
+            if (move == Move.NONE) {
+                throw new IllegalArgumentException("Illegal move "
+                        + new String(text, start, stop - start,
+                                StandardCharsets.ISO_8859_1)
+                        + " in game " + games);
+            }
+            pos.makeMove(move);
+            return move;
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * getPosition gets the position after the moves read so far. It is the
+     * same Position for every game.
+     *
+     * @return the position
+     */
+    public Position getPosition() {
+        return pos;
+    }
+
+    /**
+     * getTag gets the value of a tag of the current game.
+     *
+     * @param name the tag name, such as White
+     * @return the value or null if the game has no such tag
+     */
+    public String getTag(String name) {
+        for (int i = 0; i < tags; i++) {
+            if (tagNames[i].equals(name)) {
+                return tagValues[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * getTagCount gets the number of tags of the current game.
+     *
+     * @return the number of tags
+     */
+    public int getTagCount() {
+        return tags;
+    }
+
+    /**
+     * getTagName gets the name of a tag of the current game.
+     *
+     * @param index the tag, in the order they were read
+     * @return the name
+     */
+    public String getTagName(int index) {
+        return tagNames[index];
+    }
+
+    /**
+     * getTagValue gets the value of a tag of the current game.
+     *
+     * @param index the tag, in the order they were read
+     * @return the value
+     */
+    public String getTagValue(int index) {
+        return tagValues[index];
+    }
+
+    /**
+     * getResult gets the result the current game ended with, which is only
+     * known once nextMove has reached it.
+     *
+     * @return 1-0, 0-1, 1/2-1/2 or * if the game has no result
+     */
+    public String getResult() {
+        return result;
+    }
+
+    /**
+     * getGames gets the number of games read so far.
+     *
+     * @return the number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * close closes the file.
+     *
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * nextToken skips to the next move, number, NAG or result of the
+     * current game, past comments and variations, and makes sure all of it
+     * is in the buffer.
+     *
+     * @return the length of the token starting at next, or -1 if the game
+     * has ended because the file has or the next game's tags start
+     */
+    private int nextToken() throws IOException {
+        while (true) {
+            int c = skipSpace();
+            if (c < 0 || c == '[') {
+                return -1;
+            } else if (c == '{') {
+                skipPast('}');
+            } else if (c == ';' || c == '%') {
+                skipPast('\n');
+            } else if (c == '(') {
+                skipVariation();
+            } else if (c == ')') {
+                next++;
+            } else {
+                int length = 0;
+                while ((next + length < limit || fill())
+                        && !isDelimiter(text[next + length])) {
+                    length++;
+                }
+                return length;
+            }
+        }
+    }
+
+    /**
+     * skipSpace skips white space.
+     *
+     * @return the byte after it or -1 at the end of the file
+     */
+    private int skipSpace() throws IOException {
+        while (next < limit || fill()) {
+            if (text[next] > ' ') {
+                return text[next];
+            }
+            next++;
+        }
+        return -1;
+    }
+
+    /**
+     * skipPast skips to after the next c, such as the end of a comment.
+     */
+    private void skipPast(char c) throws IOException {
+        while (next < limit || fill()) {
+            if (text[next++] == c) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * skipVariation skips a variation in brackets, and the variations and
+     * comments inside it.
+     */
+    private void skipVariation() throws IOException {
+        int depth = 0;
+        while (next < limit || fill()) {
+            byte c = text[next++];
+            if (c == '{') {
+                skipPast('}');
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * readTag reads a tag line such as [White "Carlsen, Magnus"], undoing
+     * the \ escapes in the value in the buffer. Values are read as UTF-8,
+     * which ASCII files are too.
+     *
+     * @return the tag name or null if the line is not a tag
+     */
+    private String readTag() throws IOException {
+        int length = 0;
+        while ((next + length < limit || fill())
+                && text[next + length] != '\n') {
+            length++;
+        }
+        int i = next + 1;
+        int stop = next + length;
+        next = stop;
+        int nameStart = i;
+        while (i < stop && text[i] > ' ' && text[i] != '"') {
+            i++;
+        }
+        String name = new String(text, nameStart, i - nameStart,
+                StandardCharsets.ISO_8859_1);
+        while (i < stop && text[i] != '"') {
+            i++;
+        }
+        if (i == stop || name.isEmpty()) {
+            return null;
+        }
+        int valueStart = i + 1;
+        int valueEnd = valueStart;
+        for (i++; i < stop && text[i] != '"'; i++) {
+            if (text[i] == '\\' && i + 1 < stop) {
+                i++;
+            }
+            text[valueEnd++] = text[i];
+        }
+        if (tags == tagNames.length) {
+            tagNames = Arrays.copyOf(tagNames, tags * 2);
+            tagValues = Arrays.copyOf(tagValues, tags * 2);
+        }
+        tagNames[tags] = name;
+        tagValues[tags] = new String(text, valueStart,
+                valueEnd - valueStart, StandardCharsets.UTF_8);
+        tags++;
+        return name;
+    }
+
+    /**
+     * fill reads more of the file into the buffer. The bytes from next on
+     * are kept and moved to the front, and the buffer is doubled when they
+     * fill it, so a token being read stays whole.
+     *
+     * @return whether or not there was more to read
+     */
+    private boolean fill() throws IOException {
+        if (end) {
+            return false;
+        }
+        if (next > 0) {
+            System.arraycopy(text, next, text, 0, limit - next);
+            limit -= next;
+            next = 0;
+        }
+        if (limit == text.length) {
+            text = Arrays.copyOf(text, text.length * 2);
+        }
+        int read = channel.read(ByteBuffer.wrap(text, limit,
+                text.length - limit));
+        if (read < 0) {
+            end = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    /**
+     * skipMoveNumber skips a move number such as 12. or 12... at the start
+     * of a token, which can be written against the move.
+     *
+     * @return the index where the move starts
+     */
+    private static int skipMoveNumber(byte[] text, int start, int end) {
+        int i = start;
+        while (i < end && text[i] >= '0' && text[i] <= '9') {
+            i++;
+        }
+        if (i < end && text[i] != '.' && i > start) {
+            //Not a number, such as castles written with zeros
+            return start;
+        }
+        while (i < end && text[i] == '.') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * isResult checks if a token is a game result.
+     */
+    private static boolean isResult(byte[] text, int start, int end) {
+        return equals(text, start, end, "1-0")
+                || equals(text, start, end, "0-1")
+                || equals(text, start, end, "1/2-1/2")
+                || equals(text, start, end, "*");
+    }
+
+    /**
+     * equals checks if the bytes from start to end are the same as s.
+     */
+    private static boolean equals(byte[] text, int start, int end,
+            String s) {
+        if (end - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (text[start + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * isDelimiter checks if a byte ends a token.
+     */
+    private static boolean isDelimiter(byte c) {
+        return c <= ' ' || c == '{' || c == '(' || c == ')' || c == ';';
+    }
+}
@@ -0,0 +1,296 @@
+package engine;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * PgnWriter writes games to a PGN file in the export format: the tags, then
+ * the moves in SAN with move numbers, wrapped so no line is longer than
+ * LINE_LENGTH, and the result. A game is written a piece at a time:
+ * <pre>
+ * writer.tag("White", "Carlsen, Magnus");
+ * writer.startMoves(start);
+ * writer.move(move);
+ * writer.endGame("1-0");
+ * </pre>
+ * The moves are turned into SAN on a copy of the start position, or the
+ * caller can hand over the SAN it already has. Games can be added to the
+ * end of an existing file, so one file can archive every game played.
+ *
+ * Everything goes through one byte buffer that is written to the file when
+ * it is full, and the SAN of a move is written into a StringBuilder the
+ * writer keeps, so no objects are made per move.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.PgnWriter in.pgn out.pgn
+ * </pre>
+ * reads every game of in.pgn and writes it again to out.pgn without its
+ * comments and variations.
+ *
+ * @author Ben Clark
+ */
+public final class PgnWriter implements Closeable, Flushable {
+
+    /**
+     * The longest line of moves the export format allows.
+     */
+    public static final int LINE_LENGTH = 79;
+
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private int length;
+
+    private final Position pos = new Position();
+    private final int[] moves = new int[MoveGenerator.MAX_MOVES];
+    private final StringBuilder san = new StringBuilder(16);
+    private int column;
+
+    /**
+     * Whether the next move is the first of the game, which gets a move
+     * number even when black plays it.
+     */
+    private boolean firstMove;
+
+    /**
+     * Constructs a PgnWriter that writes over file.
+     *
+     * @param file the PGN file
+     * @throws IOException if the file can't be written
+     */
+    public PgnWriter(String file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Constructs a PgnWriter that writes over file or adds to its end.
+     *
+     * @param file the PGN file
+     * @param append whether or not to add the games to the end of the file
+     * @throws IOException if the file can't be written
+     */
+    public PgnWriter(String file, boolean append) throws IOException {
+        channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND
+                        : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * tag writes a tag of the next game. The Seven Tag Roster, Event, Site,
+     * Date, Round, White, Black and Result, should come first in that
+     * order, and a game that doesn't start from the start position needs
+     * SetUp and FEN tags.
+     *
+     * @param name the tag name
+     * @param value the value, which is escaped
+     * @throws IOException if the file can't be written
+     */
+    public void tag(String name, String value) throws IOException {
+        write('[');
+        write(name);
+        write(" \"");
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        for (byte b : bytes) {
+            if (b == '"' || b == '\\') {
+                write('\\');
+            }
+            write(b);
+        }
+        write("\"]\n");
+    }
+
+    /**
+     * startMoves ends the tags and sets up the position the moves are
+     * played from.
+     *
+     * @param start the position the game starts from, which is copied
+     * @throws IOException if the file can't be written
+     */
+    public void startMoves(Position start) throws IOException {
+        write('\n');
+        pos.copyFrom(start);
+        column = 0;
+        firstMove = true;
+    }
+
+    /**
+     * move writes a move in SAN.
+     *
+     * @param move the packed move, which must be legal
+     * @throws IOException if the file can't be written
+     */
+    public void move(int move) throws IOException {
+        writeNumber();
+        san.setLength(0);
+        San.append(san, pos, move, moves);
+        writeToken(san);
+        pos.makeMove(move);
+    }
+
+    /**
+     * move writes a move whose SAN the caller already has.
+     *
+     * @param move the packed move, which must be legal
+     * @param notation the SAN of the move
+     * @throws IOException if the file can't be written
+     */
+    public void move(int move, CharSequence notation) throws IOException {
+        writeNumber();
+        writeToken(notation);
+        pos.makeMove(move);
+    }
+
+    /**
+     * endGame writes the result and the blank line after the game.
+     *
+     * @param result 1-0, 0-1, 1/2-1/2 or *
+     * @throws IOException if the file can't be written
+     */
+    public void endGame(String result) throws IOException {
+        writeToken(result);
+        write("\n\n");
+    }
+
+    /**
+     * flush writes the buffer to the file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void flush() throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        length = 0;
+    }
+
+    /**
+     * close writes what is left in the buffer and closes the file.
+     *
+     * @throws IOException if the file can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * writeNumber writes the move number before white's moves, and before
+     * the first move with three dots if black plays it.
+     */
+    private void writeNumber() throws IOException {
+        boolean white = pos.getSideToMove() == Position.WHITE;
+        if (!white && !firstMove) {
+            return;
+        }
+        san.setLength(0);
+        san.append(pos.getFullmoveNumber()).append(white ? "." : "...");
+        writeToken(san);
+        firstMove = false;
+    }
+
+    /**
+     * writeToken writes a token of the moves after a space, or on a new line
+     * if it wouldn't fit on this one.
+     */
+    private void writeToken(CharSequence token) throws IOException {
+        if (column > 0 && column + 1 + token.length() > LINE_LENGTH) {
+            write('\n');
+            column = 0;
+        } else if (column > 0) {
+            write(' ');
+            column++;
+        }
+        write(token);
+        column += token.length();
+    }
+
+    /**
+     * write writes text that is all ASCII.
+     */
+    private void write(CharSequence text) throws IOException {
+        int n = text.length();
+        if (length + n > buffer.length) {
+            flush();
+        }
+        if (n > buffer.length) {
+            for (int i = 0; i < n; i++) {
+                write(text.charAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < n; i++) {
+            buffer[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * write writes a byte.
+     */
+    private void write(int b) throws IOException {
+        if (length == buffer.length) {
+            flush();
+        }
+        buffer[length++] = (byte) b;
+    }
+
+    /**
+     * Entry point of the PGN copier.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: PgnWriter in.pgn out.pgn");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long errors = 0;
+        try (PgnReader reader = new PgnReader(args[0]);
+                PgnWriter writer = new PgnWriter(args[1])) {
+            Position begin = new Position();
+            MoveList game = new MoveList();
+            while (reader.nextGame()) {
+                begin.copyFrom(reader.getPosition());
+                game.clear();
+                try {
+                    for (int move; (move = reader.nextMove()) != Move.NONE;) {
+                        game.add(move);
+                    }
+                } catch (IllegalArgumentException e) {
+                    System.out.println(e.getMessage());
+                    errors++;
+                    continue;
+                }
+                for (int i = 0; i < reader.getTagCount(); i++) {
+                    writer.tag(reader.getTagName(i), reader.getTagValue(i));
+                }
+                writer.startMoves(begin);
+                for (int i = 0; i < game.size(); i++) {
+                    writer.move(game.get(i));
+                }
+                writer.endGame(reader.getResult());
+            }
+            long millis = Math.max(1, (System.nanoTime() - start) / 1000000);
+            System.out.println(String.format("Games: %d  Errors: %d"
+                    + "  Time: %d ms  Games/s: %d", reader.getGames(),
+                    errors, millis, reader.getGames() * 1000 / millis));
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,858 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Position is a headless representation of a chess position. It stores one
+ * 64-bit bitboard for every piece type and color, a mailbox for fast lookups,
+ * the side to move, the castling rights, the en passant square and the
+ * halfmove clock. Position does not depend on JavaFX so the rules of the game
+ * can be checked off the application thread.
+ *
+ * Squares are numbered from a1 = 0 to h8 = 63, so the file of a square is
+ * square % 8 and the rank is square / 8.
+ *
+ * @author Ben Clark
+ */
+public final class Position {
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /**
+     * Value stored in the mailbox for a square without a piece.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * Value of the en passant square when there is no en passant capture.
+     */
+    public static final int NO_SQUARE = -1;
+
+    public static final int WHITE_KING_CASTLE = 1;
+    public static final int WHITE_QUEEN_CASTLE = 2;
+    public static final int BLACK_KING_CASTLE = 4;
+    public static final int BLACK_QUEEN_CASTLE = 8;
+    public static final int ALL_CASTLES = 15;
+
+    /**
+     * The characters of each piece type in the same order as the type values.
+     */
+    public static final String TYPE_CHARS = "pnbrqk";
+
+    /**
+     * For every square the castling rights that survive a move from or to
+     * that square.
+     */
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            CASTLE_MASK[sq] = ALL_CASTLES;
+        }
+        CASTLE_MASK[0] &= ~WHITE_QUEEN_CASTLE;
+        CASTLE_MASK[4] &= ~(WHITE_KING_CASTLE | WHITE_QUEEN_CASTLE);
+        CASTLE_MASK[7] &= ~WHITE_KING_CASTLE;
+        CASTLE_MASK[56] &= ~BLACK_QUEEN_CASTLE;
+        CASTLE_MASK[60] &= ~(BLACK_KING_CASTLE | BLACK_QUEEN_CASTLE);
+        CASTLE_MASK[63] &= ~BLACK_KING_CASTLE;
+    }
+
+    /**
+     * One bitboard per piece, indexed by piece(color, type).
+     */
+    private final long[] pieces = new long[12];
+
+    /**
+     * All the pieces of one color.
+     */
+    private final long[] occupancy = new long[2];
+
+    /**
+     * The piece on every square or EMPTY.
+     */
+    private final int[] mailbox = new int[64];
+
+    /**
+     * How many of each piece are on the board, indexed by piece(color, type).
+     * Kept up to date as pieces are put and removed so material questions
+     * never have to scan the board.
+     */
+    private final int[] counts = new int[12];
+
+    /**
+     * How much each type counts towards the game phase. A full set of
+     * pieces adds up to MAX_PHASE.
+     */
+    private static final int[] PHASE_WEIGHT = {0, 1, 1, 2, 4, 0};
+
+    /**
+     * The phase of a position with every piece still on the board.
+     */
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * One entry per move played with makeMove holding the move, the captured
+     * piece, and the castling rights, en passant square and halfmove clock
+     * from before the move. It only grows when a game gets very long.
+     */
+    private long[] undoStack = new long[256];
+
+    /**
+     * The Zobrist key of the position before each move on the undo stack.
+     * Used to take keys back and to look for repetitions.
+     */
+    private long[] keyHistory = new long[256];
+
+    private int ply;
+
+    /**
+     * The Zobrist key of the position, updated as pieces and state change.
+     */
+    private long key;
+
+    /**
+     * The Zobrist key of the pawns alone, which the pawn hash table is keyed
+     * by. Positions with the same pawns share their pawn structure score.
+     */
+    private long pawnKey;
+
+    /**
+     * The sum of Evaluation.PIECE_SQUARE over every piece on the board,
+     * updated as pieces are put, removed and moved so the evaluation never
+     * has to scan the board for it.
+     */
+    private int psq;
+
+    /**
+     * The input layer of the Network the position is scored with, updated
+     * alongside psq, or null when the piece-square tables are used.
+     */
+    private Accumulator accumulator;
+
+    private int sideToMove;
+    private int castlingRights;
+    private int epSquare;
+    private int halfmoveClock;
+    private int fullmoveNumber;
+
+    /**
+     * Constructs a position set up with the standard starting position.
+     */
+    public Position() {
+        setStartPosition();
+    }
+
+    /**
+     * piece combines a color and a type into a piece value.
+     *
+     * @param color the color of the piece
+     * @param type the type of the piece
+     * @return the piece value
+     */
+    public static int piece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    /**
+     * colorOf gets the color of a piece value.
+     *
+     * @param piece the piece value
+     * @return the color of the piece
+     */
+    public static int colorOf(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    /**
+     * typeOf gets the type of a piece value.
+     *
+     * @param piece the piece value
+     * @return the type of the piece
+     */
+    public static int typeOf(int piece) {
+        return piece < 6 ? piece : piece - 6;
+    }
+
+    /**
+     * typeOf converts a piece character such as 'q' or 'N' into a type.
+     *
+     * @param c the piece character
+     * @return the type of the piece or EMPTY if the character is not a piece
+     */
+    public static int typeOf(char c) {
+        return TYPE_CHARS.indexOf(Character.toLowerCase(c));
+    }
+
+    /**
+     * square makes a square out of a file and a rank.
+     *
+     * @param file the file of the square, 0 is the a file
+     * @param rank the rank of the square, 0 is the first rank
+     * @return the square
+     */
+    public static int square(int file, int rank) {
+        return rank * 8 + file;
+    }
+
+    /**
+     * clear removes every piece and resets the game state.
+     */
+    public void clear() {
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = 0L;
+            counts[i] = 0;
+        }
+        occupancy[WHITE] = 0L;
+        occupancy[BLACK] = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            mailbox[sq] = EMPTY;
+        }
+        sideToMove = WHITE;
+        castlingRights = 0;
+        epSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        ply = 0;
+        key = 0L;
+        pawnKey = 0L;
+        psq = 0;
+        if (accumulator != null) {
+            accumulator.reset();
+        }
+    }
+
+    /**
+     * setStartPosition sets the position up for a new game.
+     */
+    public void setStartPosition() {
+        clear();
+        int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT,
+            ROOK};
+        for (int file = 0; file < 8; file++) {
+            putPiece(piece(WHITE, backRank[file]), square(file, 0));
+            putPiece(piece(WHITE, PAWN), square(file, 1));
+            putPiece(piece(BLACK, PAWN), square(file, 6));
+            putPiece(piece(BLACK, backRank[file]), square(file, 7));
+        }
+        setCastlingRights(ALL_CASTLES);
+    }
+
+    /**
+     * copyFrom makes this position an exact copy of another one, including its
+     * undo stack. Nothing is allocated unless the other undo stack is
+     * larger.
+     *
+     * @param other the position to copy
+     */
+    public void copyFrom(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(other.mailbox, 0, mailbox, 0, mailbox.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        if (undoStack.length < other.undoStack.length) {
+            undoStack = new long[other.undoStack.length];
+            keyHistory = new long[other.keyHistory.length];
+        }
+        System.arraycopy(other.undoStack, 0, undoStack, 0, other.ply);
+        System.arraycopy(other.keyHistory, 0, keyHistory, 0, other.ply);
+        ply = other.ply;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        psq = other.psq;
+        if (accumulator != null) {
+            if (other.accumulator != null && other.accumulator.getNetwork()
+                    == accumulator.getNetwork()) {
+                accumulator.copyFrom(other.accumulator);
+            } else {
+                refreshAccumulator();
+            }
+        }
+    }
+
+    /**
+     * putPiece places a piece on an empty square.
+     *
+     * @param piece the piece to place
+     * @param sq the square to place it on
+     */
+    public void putPiece(int piece, int sq) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        occupancy[colorOf(piece)] |= bit;
+        mailbox[sq] = piece;
+        counts[piece]++;
+        key ^= Zobrist.PIECE_SQUARE[piece][sq];
+        psq += Evaluation.PIECE_SQUARE[piece][sq];
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+        }
+        if (accumulator != null) {
+            accumulator.add(piece, sq);
+        }
+    }
+
+    /**
+     * removePiece takes the piece off of a square.
+     *
+     * @param sq the square to clear
+     * @return the piece that was removed or EMPTY
+     */
+    public int removePiece(int sq) {
+        int piece = mailbox[sq];
+        if (piece != EMPTY) {
+            long bit = 1L << sq;
+            pieces[piece] &= ~bit;
+            occupancy[colorOf(piece)] &= ~bit;
+            mailbox[sq] = EMPTY;
+            counts[piece]--;
+            key ^= Zobrist.PIECE_SQUARE[piece][sq];
+            psq -= Evaluation.PIECE_SQUARE[piece][sq];
+            if (typeOf(piece) == PAWN) {
+                pawnKey ^= Zobrist.PIECE_SQUARE[piece][sq];
+            }
+            if (accumulator != null) {
+                accumulator.remove(piece, sq);
+            }
+        }
+        return piece;
+    }
+
+    /**
+     * movePiece moves a piece from one square to an empty square.
+     *
+     * @param from the square the piece is on
+     * @param to the square the piece moves to
+     */
+    public void movePiece(int from, int to) {
+        int piece = mailbox[from];
+        long bits = (1L << from) | (1L << to);
+        pieces[piece] ^= bits;
+        occupancy[colorOf(piece)] ^= bits;
+        mailbox[from] = EMPTY;
+        mailbox[to] = piece;
+        key ^= Zobrist.PIECE_SQUARE[piece][from]
+                ^ Zobrist.PIECE_SQUARE[piece][to];
+        psq += Evaluation.PIECE_SQUARE[piece][to]
+                - Evaluation.PIECE_SQUARE[piece][from];
+        if (typeOf(piece) == PAWN) {
+            pawnKey ^= Zobrist.PIECE_SQUARE[piece][from]
+                    ^ Zobrist.PIECE_SQUARE[piece][to];
+        }
+        if (accumulator != null) {
+            accumulator.move(piece, from, to);
+        }
+    }
+
+    /**
+     * makeMove plays a packed move from the MoveGenerator on the position. The
+     * move is expected to be legal. Everything needed to take the move back
+     * is pushed onto the undo stack so unmakeMove can restore the position
+     * exactly without allocating.
+     *
+     * @param move the packed move
+     */
+    public void makeMove(int move) {
+        if (ply == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, ply * 2);
+            keyHistory = Arrays.copyOf(keyHistory, ply * 2);
+        }
+        keyHistory[ply] = key;
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = mailbox[from];
+
+        int captured = EMPTY;
+        if (flags == Move.EN_PASSANT) {
+            captured = removePiece(sideToMove == WHITE ? to - 8 : to + 8);
+        } else if (Move.isCapture(move)) {
+            captured = removePiece(to);
+        }
+        undoStack[ply++] = (move & 0xFFFFL)
+                | ((long) (captured + 1) << 16)
+                | ((long) castlingRights << 21)
+                | ((long) (epSquare + 1) << 25)
+                | ((long) halfmoveClock << 32);
+
+        movePiece(from, to);
+        if (Move.isPromotion(move)) {
+            removePiece(to);
+            putPiece(piece(sideToMove, Move.promotion(move)), to);
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to + 1, to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to - 2, to + 1);
+        }
+
+        if (typeOf(piece) == PAWN || captured != EMPTY) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        epSquare = flags == Move.DOUBLE_PUSH ? (from + to) / 2 : NO_SQUARE;
+        castlingRights &= CASTLE_MASK[from] & CASTLE_MASK[to];
+        if (sideToMove == BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove ^= 1;
+        key ^= Zobrist.CASTLING[castlingRights] ^ epKey() ^ Zobrist.SIDE;
+    }
+
+    /**
+     * unmakeMove takes back the last move played with makeMove.
+     */
+    public void unmakeMove() {
+        long undo = undoStack[--ply];
+        int move = (int) (undo & 0xFFFF);
+        int captured = (int) ((undo >>> 16) & 31) - 1;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+
+        sideToMove ^= 1;
+        if (sideToMove == BLACK) {
+            fullmoveNumber--;
+        }
+        castlingRights = (int) ((undo >>> 21) & 15);
+        epSquare = (int) ((undo >>> 25) & 127) - 1;
+        halfmoveClock = (int) (undo >>> 32);
+
+        if (Move.isPromotion(move)) {
+            removePiece(to);
+            putPiece(piece(sideToMove, PAWN), to);
+        } else if (flags == Move.KING_CASTLE) {
+            movePiece(to - 1, to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            movePiece(to + 1, to - 2);
+        }
+        movePiece(to, from);
+
+        if (flags == Move.EN_PASSANT) {
+            putPiece(captured, sideToMove == WHITE ? to - 8 : to + 8);
+        } else if (captured != EMPTY) {
+            putPiece(captured, to);
+        }
+        key = keyHistory[ply];
+    }
+
+    /**
+     * epKey gets the part of the key for the en passant square. It is only
+     * hashed when a pawn of the side to move could actually capture, so
+     * positions that only differ by an unusable en passant square get the same
+     * key.
+     *
+     * @return the en passant key or 0
+     */
+    private long epKey() {
+        if (epSquare == NO_SQUARE
+                || (Bitboards.PAWN_ATTACKS[sideToMove ^ 1][epSquare]
+                & pieces[piece(sideToMove, PAWN)]) == 0) {
+            return 0L;
+        }
+        return Zobrist.EN_PASSANT[epSquare & 7];
+    }
+
+    /**
+     * computeKey hashes the position from scratch.
+     *
+     * @return the Zobrist key of the position
+     */
+    private long computeKey() {
+        long hash = 0L;
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != EMPTY) {
+                hash ^= Zobrist.PIECE_SQUARE[mailbox[sq]][sq];
+            }
+        }
+        hash ^= Zobrist.CASTLING[castlingRights] ^ epKey();
+        if (sideToMove == BLACK) {
+            hash ^= Zobrist.SIDE;
+        }
+        return hash;
+    }
+
+    /**
+     * getKey gets the Zobrist key of the position.
+     *
+     * @return the key
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * getLastMove gets the move that was last played with makeMove and not
+     * taken back.
+     *
+     * @return the packed move or Move.NONE if there is none
+     */
+    public int getLastMove() {
+        return ply > 0 ? (int) (undoStack[ply - 1] & 0xFFFF) : Move.NONE;
+    }
+
+    /**
+     * getPawnKey gets the Zobrist key of the pawns alone.
+     *
+     * @return the pawn key
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * getPsq gets the material and piece-square score of the position.
+     *
+     * @return the midgame and endgame scores from white's point of view,
+     * packed by Evaluation.pair
+     */
+    public int getPsq() {
+        return psq;
+    }
+
+    /**
+     * setNetwork makes the position keep the input layer of a network up to
+     * date so Evaluation scores it with the network.
+     *
+     * @param network the network or null to go back to the piece-square
+     * tables
+     */
+    public void setNetwork(Network network) {
+        if (network == null) {
+            accumulator = null;
+        } else if (accumulator == null
+                || accumulator.getNetwork() != network) {
+            accumulator = new Accumulator(network);
+            refreshAccumulator();
+        }
+    }
+
+    /**
+     * refreshAccumulator runs the input layer from scratch.
+     */
+    private void refreshAccumulator() {
+        accumulator.reset();
+        for (int sq = 0; sq < 64; sq++) {
+            if (mailbox[sq] != EMPTY) {
+                accumulator.add(mailbox[sq], sq);
+            }
+        }
+    }
+
+    /**
+     * getAccumulator gets the input layer of the position's network.
+     *
+     * @return the accumulator or null if there is no network
+     */
+    Accumulator getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * repetitions counts how many times the current position has already
+     * happened. Only positions with the same side to move since the last
+     * capture or pawn move can match, so the search stops at the halfmove
+     * clock.
+     *
+     * @return the number of earlier occurrences of this position
+     */
+    public int repetitions() {
+        int count = 0;
+        int stop = Math.max(0, ply - halfmoveClock);
+        for (int i = ply - 4; i >= stop; i -= 2) {
+            if (keyHistory[i] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * pieceCount gets how many pieces of a color and type are on the board.
+     *
+     * @param color the color of the pieces
+     * @param type the type of the pieces
+     * @return the number of those pieces
+     */
+    public int pieceCount(int color, int type) {
+        return counts[piece(color, type)];
+    }
+
+    /**
+     * phase measures how far the game has moved towards the endgame from the
+     * pieces other than pawns and kings that are left. It is MAX_PHASE with
+     * every piece on the board and 0 when only kings and pawns are left.
+     * Promotions can push it past MAX_PHASE so it is capped there.
+     *
+     * @return the game phase from 0 to MAX_PHASE
+     */
+    public int phase() {
+        int phase = 0;
+        for (int type = KNIGHT; type <= QUEEN; type++) {
+            phase += PHASE_WEIGHT[type]
+                    * (counts[piece(WHITE, type)] + counts[piece(BLACK, type)]);
+        }
+        return Math.min(phase, MAX_PHASE);
+    }
+
+    /**
+     * insufficientMaterial checks if neither side has enough material left to
+     * mate. That is the case when there are no pawns, rooks or queens and
+     * either each side has at most one minor piece, or there are no knights
+     * and every bishop stands on the same color of square.
+     *
+     * @return whether or not neither side can mate
+     */
+    public boolean insufficientMaterial() {
+        if (counts[piece(WHITE, PAWN)] + counts[piece(BLACK, PAWN)]
+                + counts[piece(WHITE, ROOK)] + counts[piece(BLACK, ROOK)]
+                + counts[piece(WHITE, QUEEN)] + counts[piece(BLACK, QUEEN)]
+                != 0) {
+            return false;
+        }
+        int whiteKnights = counts[piece(WHITE, KNIGHT)];
+        int blackKnights = counts[piece(BLACK, KNIGHT)];
+        if (whiteKnights + counts[piece(WHITE, BISHOP)] <= 1
+                && blackKnights + counts[piece(BLACK, BISHOP)] <= 1) {
+            return true;
+        }
+        long bishops = pieces[piece(WHITE, BISHOP)]
+                | pieces[piece(BLACK, BISHOP)];
+        return whiteKnights + blackKnights == 0
+                && ((bishops & Bitboards.DARK_SQUARES) == 0
+                || (bishops & ~Bitboards.DARK_SQUARES) == 0);
+    }
+
+    /**
+     * getPly gets the number of moves on the undo stack.
+     *
+     * @return the number of moves that can be taken back
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * isSquareAttacked checks if any piece of the given color attacks a
+     * square.
+     *
+     * @param sq the square to check
+     * @param by the color of the attacking side
+     * @return whether or not the square is attacked
+     */
+    public boolean isSquareAttacked(int sq, int by) {
+        return isSquareAttacked(sq, by, occupied());
+    }
+
+    /**
+     * isSquareAttacked checks if any piece of the given color attacks a square
+     * when the board is occupied by the given squares. Sliders see through
+     * anything that is not in occupied.
+     *
+     * @param sq the square to check
+     * @param by the color of the attacking side
+     * @param occupied the squares that block sliders
+     * @return whether or not the square is attacked
+     */
+    public boolean isSquareAttacked(int sq, int by, long occupied) {
+        long queens = pieces[piece(by, QUEEN)];
+        return (Bitboards.PAWN_ATTACKS[by ^ 1][sq] & pieces[piece(by, PAWN)])
+                != 0
+                || (Bitboards.KNIGHT_ATTACKS[sq] & pieces[piece(by, KNIGHT)])
+                != 0
+                || (Bitboards.KING_ATTACKS[sq] & pieces[piece(by, KING)]) != 0
+                || (Bitboards.rookAttacks(sq, occupied)
+                & (pieces[piece(by, ROOK)] | queens)) != 0
+                || (Bitboards.bishopAttacks(sq, occupied)
+                & (pieces[piece(by, BISHOP)] | queens)) != 0;
+    }
+
+    /**
+     * attackersTo gets every piece of either color that attacks a square.
+     *
+     * @param sq the square being attacked
+     * @param occupied the squares that block sliders
+     * @return the attacking pieces
+     */
+    public long attackersTo(int sq, long occupied) {
+        long queens = pieces[piece(WHITE, QUEEN)] | pieces[piece(BLACK, QUEEN)];
+        return (Bitboards.PAWN_ATTACKS[BLACK][sq] & pieces[piece(WHITE, PAWN)])
+                | (Bitboards.PAWN_ATTACKS[WHITE][sq]
+                & pieces[piece(BLACK, PAWN)])
+                | (Bitboards.KNIGHT_ATTACKS[sq] & (pieces[piece(WHITE, KNIGHT)]
+                | pieces[piece(BLACK, KNIGHT)]))
+                | (Bitboards.KING_ATTACKS[sq] & (pieces[piece(WHITE, KING)]
+                | pieces[piece(BLACK, KING)]))
+                | (Bitboards.rookAttacks(sq, occupied)
+                & (pieces[piece(WHITE, ROOK)] | pieces[piece(BLACK, ROOK)]
+                | queens))
+                | (Bitboards.bishopAttacks(sq, occupied)
+                & (pieces[piece(WHITE, BISHOP)] | pieces[piece(BLACK, BISHOP)]
+                | queens));
+    }
+
+    /**
+     * inCheck checks if the side to move is in check.
+     *
+     * @return whether or not the side to move is in check
+     */
+    public boolean inCheck() {
+        return isSquareAttacked(kingSquare(sideToMove), sideToMove ^ 1);
+    }
+
+    /**
+     * kingSquare gets the square of a color's king.
+     *
+     * @param color the color of the king
+     * @return the square the king is on
+     */
+    public int kingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[piece(color, KING)]);
+    }
+
+    /**
+     * pieceAt gets the piece on a square.
+     *
+     * @param sq the square
+     * @return the piece on the square or EMPTY
+     */
+    public int pieceAt(int sq) {
+        return mailbox[sq];
+    }
+
+    /**
+     * pieces gets the bitboard of one type of piece for a color.
+     *
+     * @param color the color of the pieces
+     * @param type the type of the pieces
+     * @return the bitboard of those pieces
+     */
+    public long pieces(int color, int type) {
+        return pieces[piece(color, type)];
+    }
+
+    /**
+     * occupancy gets the bitboard of all of a color's pieces.
+     *
+     * @param color the color
+     * @return every square that color has a piece on
+     */
+    public long occupancy(int color) {
+        return occupancy[color];
+    }
+
+    /**
+     * occupied gets the bitboard of every piece on the board.
+     *
+     * @return every square that has a piece
+     */
+    public long occupied() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+    /**
+     * Getter of the side to move.
+     *
+     * @return WHITE or BLACK
+     */
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Sets the side to move.
+     *
+     * @param sideToMove WHITE or BLACK
+     */
+    public void setSideToMove(int sideToMove) {
+        this.sideToMove = sideToMove;
+        key = computeKey();
+    }
+
+    /**
+     * Getter of the castling rights as a mask of the castle flags.
+     *
+     * @return the castling rights
+     */
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * Sets the castling rights.
+     *
+     * @param castlingRights a mask of the castle flags
+     */
+    public void setCastlingRights(int castlingRights) {
+        this.castlingRights = castlingRights;
+        key = computeKey();
+    }
+
+    /**
+     * Getter of the square a pawn can capture en passant on.
+     *
+     * @return the en passant square or NO_SQUARE
+     */
+    public int getEpSquare() {
+        return epSquare;
+    }
+
+    /**
+     * Sets the en passant square.
+     *
+     * @param epSquare the en passant square or NO_SQUARE
+     */
+    public void setEpSquare(int epSquare) {
+        this.epSquare = epSquare;
+        key = computeKey();
+    }
+
+    /**
+     * Getter of the number of halfmoves since the last capture or pawn move.
+     *
+     * @return the halfmove clock
+     */
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Sets the halfmove clock.
+     *
+     * @param halfmoveClock the new halfmove clock
+     */
+    public void setHalfmoveClock(int halfmoveClock) {
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * Getter of the fullmove number, which starts at 1.
+     *
+     * @return the fullmove number
+     */
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Sets the fullmove number.
+     *
+     * @param fullmoveNumber the new fullmove number
+     */
+    public void setFullmoveNumber(int fullmoveNumber) {
+        this.fullmoveNumber = fullmoveNumber;
+    }
+}
@@ -0,0 +1,276 @@
+package engine;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * San reads and writes moves in Standard Algebraic Notation, such as e4,
+ * Nbd7, exd8=Q+ or O-O, the notation PGN files use. The move is found among
+ * the legal moves of the position, so a SAN that fits no legal move, or more
+ * than one, reads as Move.NONE.
+ *
+ * Moves are read straight out of a byte array so a PGN file can be read
+ * without making a String for every move, and only the moves of the pieces
+ * that could have made the move are generated. Moves are written into a
+ * StringBuilder the caller keeps for the same reason.
+ *
+ * @author Ben Clark
+ */
+public final class San {
+
+    private San() {
+
+    }
+
+    /**
+     * parse reads a SAN move.
+     *
+     * @param pos the position the move is played in
+     * @param san the SAN
+     * @param moves room for the legal moves, at least MoveGenerator.MAX_MOVES
+     * long
+     * @return the packed move or Move.NONE if it is not a legal move
+     */
+    public static int parse(Position pos, String san, int[] moves) {
+        byte[] text = san.getBytes(StandardCharsets.ISO_8859_1);
+        return parse(pos, text, 0, text.length, moves);
+    }
+
+    /**
+     * parse reads a SAN move out of part of a byte array. Check and mate
+     * signs and annotations such as ! or ?! after the move are allowed, and
+     * so are castles written with zeros.
+     *
+     * @param pos the position the move is played in
+     * @param text the bytes the move is in
+     * @param start the index of the first byte of the move
+     * @param end the index after the last byte of the move
+     * @param moves room for the legal moves, at least MoveGenerator.MAX_MOVES
+     * long
+     * @return the packed move or Move.NONE if it is not a legal move
+     */
+    public static int parse(Position pos, byte[] text, int start, int end,
+            int[] moves) {
+        while (end > start && isSuffix(text[end - 1])) {
+            end--;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int us = pos.getSideToMove();
+
+        if (text[start] == 'O' || text[start] == '0') {
+            int castles = 0;
+            for (int i = start; i < end; i++) {
+                if (text[i] == 'O' || text[i] == '0') {
+                    castles++;
+                } else if (text[i] != '-') {
+                    return Move.NONE;
+                }
+            }
+            int flags = castles == 2 ? Move.KING_CASTLE
+                    : castles == 3 ? Move.QUEEN_CASTLE : -1;
+            int count = MoveGenerator.generatePieces(pos, moves,
+                    1L << pos.kingSquare(us));
+            for (int i = 0; i < count; i++) {
+                if (Move.flags(moves[i]) == flags) {
+                    return moves[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int type = Position.PAWN;
+        int i = start;
+        if (isPieceLetter(text[i])) {
+            type = Position.typeOf((char) text[i]);
+            i++;
+        }
+        int promotion = -1;
+        if (type == Position.PAWN && end - i > 2
+                && isPieceLetter(text[end - 1])) {
+            promotion = Position.typeOf((char) text[end - 1]);
+            end--;
+            if (text[end - 1] == '=') {
+                end--;
+            }
+        }
+        if (end - i < 2 || !isFile(text[end - 2]) || !isRank(text[end - 1])) {
+            return Move.NONE;
+        }
+        int to = Position.square(text[end - 2] - 'a', text[end - 1] - '1');
+        end -= 2;
+
+        //What is left tells pieces apart or marks a capture
+        int fromFile = -1;
+        int fromRank = -1;
+        for (; i < end; i++) {
+            if (isFile(text[i])) {
+                fromFile = text[i] - 'a';
+            } else if (isRank(text[i])) {
+                fromRank = text[i] - '1';
+            } else if (text[i] != 'x' && text[i] != ':' && text[i] != '-') {
+                return Move.NONE;
+            }
+        }
+
+        //A piece moves to a square it attacks, a pawn along its file unless
+        //it captures
+        long candidates = pos.pieces(us, type);
+        if (type != Position.PAWN) {
+            candidates &= pos.attackersTo(to, pos.occupied());
+        } else {
+            candidates &= Bitboards.FILE_A << (fromFile >= 0 ? fromFile
+                    : to & 7);
+        }
+        int count = MoveGenerator.generatePieces(pos, moves, candidates);
+
+        int found = Move.NONE;
+        for (int m = 0; m < count; m++) {
+            int move = moves[m];
+            int from = Move.from(move);
+            if (Move.to(move) != to
+                    || Position.typeOf(pos.pieceAt(from)) != type
+                    || (fromFile >= 0 && (from & 7) != fromFile)
+                    || (fromRank >= 0 && (from >>> 3) != fromRank)
+                    || Move.isPromotion(move) != (promotion >= 0)
+                    || (promotion >= 0 && Move.promotion(move) != promotion)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                //Ambiguous
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * toString writes a move in SAN.
+     *
+     * @param pos the position the move is played in
+     * @param move the packed move, which must be legal
+     * @return the SAN
+     */
+    public static String toString(Position pos, int move) {
+        StringBuilder sb = new StringBuilder(8);
+        append(sb, pos, move, new int[MoveGenerator.MAX_MOVES]);
+        return sb.toString();
+    }
+
+    /**
+     * append writes a move in SAN with a + after a check and a # after a
+     * mate. The move is played and taken back to find those out, so pos is
+     * the same afterwards.
+     *
+     * @param sb where to write the SAN
+     * @param pos the position the move is played in
+     * @param move the packed move, which must be legal
+     * @param moves room for the legal moves, at least MoveGenerator.MAX_MOVES
+     * long
+     */
+    public static void append(StringBuilder sb, Position pos, int move,
+            int[] moves) {
+        appendMove(sb, pos, move, moves);
+        pos.makeMove(move);
+        if (pos.inCheck()) {
+            sb.append(MoveGenerator.generate(pos, moves) == 0 ? '#' : '+');
+        }
+        pos.unmakeMove();
+    }
+
+    /**
+     * appendMove writes a move in SAN without the check or mate sign. The
+     * piece's file, rank or both are added when another piece of the same
+     * type could also move to the square.
+     *
+     * @param sb where to write the SAN
+     * @param pos the position the move is played in
+     * @param move the packed move, which must be legal
+     * @param moves room for the legal moves, at least MoveGenerator.MAX_MOVES
+     * long
+     */
+    public static void appendMove(StringBuilder sb, Position pos, int move,
+            int[] moves) {
+        int flags = Move.flags(move);
+        if (flags == Move.KING_CASTLE) {
+            sb.append("O-O");
+            return;
+        } else if (flags == Move.QUEEN_CASTLE) {
+            sb.append("O-O-O");
+            return;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int type = Position.typeOf(pos.pieceAt(from));
+
+        if (type == Position.PAWN) {
+            if (Move.isCapture(move)) {
+                sb.append((char) ('a' + (from & 7))).append('x');
+            }
+            Move.appendSquare(sb, to);
+            if (Move.isPromotion(move)) {
+                sb.append('=').append(Character.toUpperCase(
+                        Position.TYPE_CHARS.charAt(Move.promotion(move))));
+            }
+            return;
+        }
+
+        sb.append(Character.toUpperCase(Position.TYPE_CHARS.charAt(type)));
+        if (type != Position.KING) {
+            long others = pos.pieces(pos.getSideToMove(), type)
+                    & pos.attackersTo(to, pos.occupied()) & ~(1L << from);
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            int count = others == 0 ? 0
+                    : MoveGenerator.generatePieces(pos, moves, others);
+            for (int i = 0; i < count; i++) {
+                if (Move.to(moves[i]) == to) {
+                    int other = Move.from(moves[i]);
+                    ambiguous = true;
+                    sameFile |= (other & 7) == (from & 7);
+                    sameRank |= (other >>> 3) == (from >>> 3);
+                }
+            }
+            if (ambiguous && (!sameFile || sameRank)) {
+                sb.append((char) ('a' + (from & 7)));
+            }
+            if (sameFile) {
+                sb.append((char) ('1' + (from >>> 3)));
+            }
+        }
+        if (Move.isCapture(move)) {
+            sb.append('x');
+        }
+        Move.appendSquare(sb, to);
+    }
+
+    /**
+     * isSuffix checks if a byte can follow a move without being part of it.
+     */
+    private static boolean isSuffix(byte c) {
+        return c == '+' || c == '#' || c == '!' || c == '?';
+    }
+
+    /**
+     * isPieceLetter checks if a byte names a piece other than a pawn.
+     */
+    private static boolean isPieceLetter(byte c) {
+        return c == 'N' || c == 'B' || c == 'R' || c == 'Q' || c == 'K';
+    }
+
+    /**
+     * isFile checks if a byte is a file letter.
+     */
+    private static boolean isFile(byte c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    /**
+     * isRank checks if a byte is a rank digit.
+     */
+    private static boolean isRank(byte c) {
+        return c >= '1' && c <= '8';
+    }
+}
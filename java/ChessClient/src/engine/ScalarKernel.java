@@ -0,0 +1,70 @@
+package engine;
+
+/**
+ * ScalarKernel runs a Network with plain loops. It is the fallback when the
+ * Vector API is not available and the reference the vector kernel has to
+ * agree with.
+ *
+ * @author Ben Clark
+ */
+final class ScalarKernel implements NetworkKernel {
+
+    static final ScalarKernel INSTANCE = new ScalarKernel();
+
+    private ScalarKernel() {
+
+    }
+
+    @Override
+    public void add(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void sub(short[] accumulator, short[] weights, int offset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public void addSub(short[] accumulator, short[] weights, int addOffset,
+            int subOffset) {
+        for (int i = 0; i < accumulator.length; i++) {
+            accumulator[i] += weights[addOffset + i] - weights[subOffset + i];
+        }
+    }
+
+    @Override
+    public int forward(Network network, short[] us, short[] them,
+            short[] input) {
+        int size = network.accumulatorSize;
+        for (int i = 0; i < size; i++) {
+            input[i] = clip(us[i]);
+            input[size + i] = clip(them[i]);
+        }
+        short[] weights = network.hiddenWeights;
+        int output = network.outputBias;
+        for (int n = 0, row = 0; n < network.hiddenSize; n++, row += 2 * size) {
+            int sum = 0;
+            for (int i = 0; i < 2 * size; i++) {
+                sum += input[i] * weights[row + i];
+            }
+            int hidden = (sum + network.hiddenBiases[n]) >> Network.HIDDEN_SHIFT;
+            output += Math.max(0, Math.min(hidden, Network.ACTIVATION_MAX))
+                    * network.outputWeights[n];
+        }
+        return output;
+    }
+
+    private static short clip(short value) {
+        return (short) Math.max(0, Math.min(value, Network.ACTIVATION_MAX));
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
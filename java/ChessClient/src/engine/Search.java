@@ -0,0 +1,757 @@
+package engine;
+
+import java.util.Arrays;
+
+/**
+ * Search finds the best move of a position with an iterative deepening
+ * principal variation search. Each iteration searches one ply deeper than
+ * the last and starts with the best line found so far, so the search can be
+ * stopped at any time and still has a move to play. Every move after the
+ * first is searched with a null window first and only searched again with
+ * the full window when it turns out to be better.
+ *
+ * Moves are handed out by a MovePicker: the move from the table, then
+ * winning captures, then killer moves and the countermove, then the other
+ * quiet moves by their history score and finally the losing captures. A
+ * quiet move that causes a cutoff becomes a killer at its ply, the
+ * countermove of the move before it and gains history, while the quiet
+ * moves tried before it lose history.
+ *
+ * At the end of the main search a quiescence search keeps playing captures
+ * until the position is quiet, so a score is never taken in the middle of
+ * an exchange. Captures are tried most valuable victim first, and captures
+ * that lose material by static exchange or can't bring the score back up to
+ * alpha are skipped.
+ *
+ * A Search keeps its own copy of the position and its own move buffers, so
+ * it can run on a background thread while the game carries on with the
+ * original position. What it learns about positions goes into a
+ * TranspositionTable, which gives it the best move to try first when it
+ * comes back to a position and often a score that saves searching it again.
+ *
+ * @author Ben Clark
+ */
+public final class Search {
+
+    /**
+     * A score no position can reach.
+     */
+    public static final int INFINITE = 32000;
+
+    /**
+     * The score of being mated right now. Being mated n plies from the root
+     * scores -MATE + n so the quickest mate is preferred.
+     */
+    public static final int MATE = 31000;
+
+    /**
+     * Scores past this are mates.
+     */
+    public static final int MATE_BOUND = MATE - 1000;
+
+    /**
+     * The deepest the search will go.
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * How many nodes are searched between checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 2048;
+
+    /**
+     * How much a capture may gain on top of the piece it takes, for
+     * positional changes, before delta pruning gives up on it.
+     */
+    private static final int DELTA_MARGIN = 200;
+
+    /**
+     * History scores are kept within -HISTORY_MAX..HISTORY_MAX. Each update
+     * is scaled down by how close the score already is to the limit, so old
+     * results fade instead of saturating.
+     */
+    private static final int HISTORY_MAX = 16384;
+
+    /**
+     * The largest history bonus, reached at depth 20.
+     */
+    private static final int HISTORY_BONUS_MAX = 400;
+
+    private final Position pos = new Position();
+    private final TranspositionTable table;
+    private final PawnTable pawnTable;
+    private final int[][] moves = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+
+    /**
+     * The quiet moves tried at each ply, which lose history if a later move
+     * causes the cutoff.
+     */
+    private final int[][] quietsTried
+            = new int[MAX_PLY + 1][MoveGenerator.MAX_MOVES];
+
+    /**
+     * Two killer moves for each ply, the newest first.
+     */
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+
+    /**
+     * The history score of each quiet move for each side, indexed by the low
+     * 12 bits of the move.
+     */
+    private final int[][] history = new int[2][64 * 64];
+
+    /**
+     * The quiet move that last refuted a move, indexed by the piece that
+     * moved and the square it moved to.
+     */
+    private final int[][] counterMoves = new int[12][64];
+
+    /**
+     * The triangular principal variation table. pv[ply] holds the best line
+     * from ply onwards and pvLength[ply] how long it is.
+     */
+    private final int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    private volatile boolean stopped;
+    private long nodes;
+    private long quiescenceNodes;
+
+    /**
+     * Beta cutoffs of the main search, and how many of them came from the
+     * first move tried, which measures how good the move ordering is.
+     */
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private boolean quiescencePruning = true;
+    private long nodeLimit;
+    private long deadline;
+
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private SearchListener listener;
+
+    /**
+     * Constructs a Search with its own 16 MB transposition table.
+     */
+    public Search() {
+        this(new TranspositionTable(16));
+    }
+
+    /**
+     * Constructs a Search that uses the given transposition table and a pawn
+     * table of the default size.
+     *
+     * @param table the transposition table
+     */
+    public Search(TranspositionTable table) {
+        this(table, new PawnTable(PawnTable.DEFAULT_MEGABYTES));
+    }
+
+    /**
+     * Constructs a Search that uses the given tables.
+     *
+     * @param table the transposition table
+     * @param pawnTable the pawn table, which must not be shared with another
+     * Search
+     */
+    public Search(TranspositionTable table, PawnTable pawnTable) {
+        this.table = table;
+        this.pawnTable = pawnTable;
+        for (int ply = 0; ply <= MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(pos, history);
+        }
+    }
+
+    /**
+     * search looks for the best move of a position within the given limits.
+     * Only finished iterations are used, except that a stopped iteration can
+     * still change the move if its first move was fully searched.
+     *
+     * @param root the position to search, which is not changed
+     * @param maxDepth the deepest iteration to search
+     * @param maxNodes the most nodes to search or 0 for no limit
+     * @param maxMillis the most time to search in milliseconds or 0 for no
+     * limit
+     * @return the best move or Move.NONE if there is no legal move
+     */
+    public int search(Position root, int maxDepth, long maxNodes,
+            long maxMillis) {
+        reset();
+        table.newSearch();
+        return iterate(root, 1, maxDepth, maxNodes, maxMillis);
+    }
+
+    /**
+     * reset clears a stop request and the node count so the next search can
+     * run. It is done before a search is handed to another thread so a stop
+     * that comes in before that thread starts isn't lost.
+     */
+    void reset() {
+        stopped = false;
+        nodes = 0;
+        quiescenceNodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        pawnTable.resetCounters();
+    }
+
+    /**
+     * iterate runs the iterative deepening from startDepth without aging the
+     * table or clearing a stop request, so several searches that share a
+     * table can run at once.
+     *
+     * @param root the position to search, which is not changed
+     * @param startDepth the depth of the first iteration
+     * @param maxDepth the deepest iteration to search
+     * @param maxNodes the most nodes to search or 0 for no limit
+     * @param maxMillis the most time to search in milliseconds or 0 for no
+     * limit
+     * @return the best move or Move.NONE if there is no legal move
+     */
+    int iterate(Position root, int startDepth, int maxDepth, long maxNodes,
+            long maxMillis) {
+        pos.copyFrom(root);
+        nodes = 0;
+        quiescenceNodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        nodeLimit = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        deadline = maxMillis > 0 ? System.nanoTime() + maxMillis * 1000000
+                : Long.MAX_VALUE;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        pvLength[0] = 0;
+        clearOrdering();
+
+        int[] rootMoves = moves[0];
+        int rootCount = MoveGenerator.generate(pos, rootMoves);
+        if (rootCount == 0) {
+            return Move.NONE;
+        }
+        bestMove = rootMoves[0];
+
+        for (int depth = Math.min(startDepth, maxDepth);
+                depth <= Math.min(maxDepth, MAX_PLY); depth++) {
+            int score = searchRoot(rootMoves, rootCount, depth);
+            if (stopped) {
+                break;
+            }
+            bestScore = score;
+            bestMove = pv[0][0];
+            completedDepth = depth;
+            if (listener != null) {
+                listener.iterationDone(this);
+            }
+            //No point looking deeper once a forced mate is found
+            if (Math.abs(score) >= MATE_BOUND) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * searchRoot searches every root move, the best one from the last
+     * iteration first.
+     */
+    private int searchRoot(int[] rootMoves, int rootCount, int depth) {
+        for (int i = 1; i < rootCount; i++) {
+            if (rootMoves[i] == bestMove) {
+                rootMoves[i] = rootMoves[0];
+                rootMoves[0] = bestMove;
+                break;
+            }
+        }
+
+        int alpha = -INFINITE;
+        int beta = INFINITE;
+        for (int i = 0; i < rootCount; i++) {
+            int move = rootMoves[i];
+            pos.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -search(depth - 1, 1, -beta, -alpha);
+            } else {
+                score = -search(depth - 1, 1, -alpha - 1, -alpha);
+                if (score > alpha && !stopped) {
+                    score = -search(depth - 1, 1, -beta, -alpha);
+                }
+            }
+            pos.unmakeMove();
+            if (stopped) {
+                break;
+            }
+            if (score > alpha) {
+                alpha = score;
+                updatePv(0, move);
+                //A better move from an unfinished iteration is still better
+                bestMove = move;
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * search is the recursive principal variation search.
+     *
+     * @param depth the plies left to search
+     * @param ply the distance from the root
+     * @param alpha the score the side to move already has
+     * @param beta the score the opponent already has
+     * @return the score of the position
+     */
+    private int search(int depth, int ply, int alpha, int beta) {
+        if (depth <= 0) {
+            return quiesce(ply, alpha, beta);
+        }
+        boolean pvNode = beta - alpha > 1;
+        pvLength[ply] = ply;
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (pos.getHalfmoveClock() >= 100 || pos.repetitions() > 0
+                || pos.insufficientMaterial()) {
+            return 0;
+        }
+
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(pos, pawnTable);
+        }
+
+        long key = pos.getKey();
+        long entry = table.probe(key);
+        int hashMove = TranspositionTable.move(entry);
+        //The line would be cut short if the PV took a score from the table
+        if (entry != 0 && !pvNode && TranspositionTable.depth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.score(entry), ply);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER
+                    && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER
+                    && score <= alpha)) {
+                return score;
+            }
+        }
+
+        int lastMove = pos.getLastMove();
+        int[] counter = null;
+        if (lastMove != Move.NONE) {
+            counter = counterMoves[pos.pieceAt(Move.to(lastMove))];
+        }
+        int[] killer = killers[ply];
+        MovePicker picker = pickers[ply];
+        picker.init(hashMove, killer[0], killer[1],
+                counter == null ? Move.NONE : counter[Move.to(lastMove)]);
+        int[] quiets = quietsTried[ply];
+        int quietCount = 0;
+
+        int oldAlpha = alpha;
+        int best = Move.NONE;
+        int searched = 0;
+        int move;
+        while ((move = picker.next()) != Move.NONE) {
+            pos.makeMove(move);
+            int score;
+            if (searched++ == 0) {
+                score = -search(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -search(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta) {
+                    score = -search(depth - 1, ply + 1, -beta, -alpha);
+                }
+            }
+            pos.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                best = move;
+                if (score >= beta) {
+                    cutoffs++;
+                    if (searched == 1) {
+                        firstMoveCutoffs++;
+                    }
+                    if (MovePicker.isQuiet(move)) {
+                        updateQuiet(move, depth, ply, quiets, quietCount,
+                                counter, lastMove);
+                    }
+                    table.store(key, move, toTable(score, ply), depth,
+                            TranspositionTable.BOUND_LOWER);
+                    return score;
+                }
+                alpha = score;
+                updatePv(ply, move);
+            }
+            if (MovePicker.isQuiet(move)) {
+                quiets[quietCount++] = move;
+            }
+        }
+        if (searched == 0) {
+            return pos.inCheck() ? -MATE + ply : 0;
+        }
+        table.store(key, best, toTable(alpha, ply), depth, alpha > oldAlpha
+                ? TranspositionTable.BOUND_EXACT
+                : TranspositionTable.BOUND_UPPER);
+        return alpha;
+    }
+
+    /**
+     * quiesce searches captures until the position is quiet. The side to
+     * move can stand pat on the static score instead of capturing, unless
+     * it is in check, where every evasion is searched so mates are seen.
+     *
+     * @param ply the distance from the root
+     * @param alpha the score the side to move already has
+     * @param beta the score the opponent already has
+     * @return the score of the position
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+        quiescenceNodes++;
+        if ((++nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (pos.getHalfmoveClock() >= 100 || pos.repetitions() > 0
+                || pos.insufficientMaterial()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(pos, pawnTable);
+        }
+
+        int[] list = moves[ply];
+        boolean inCheck = pos.inCheck();
+        int standPat = 0;
+        int count;
+        if (inCheck) {
+            count = MoveGenerator.generate(pos, list);
+            if (count == 0) {
+                return -MATE + ply;
+            }
+        } else {
+            standPat = Evaluation.evaluate(pos, pawnTable);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+            count = MoveGenerator.generateCaptures(pos, list);
+        }
+        orderMvvLva(list, count);
+
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            if (!inCheck && quiescencePruning) {
+                //Delta pruning: even winning the piece for free can't
+                //raise alpha
+                if (!Move.isPromotion(move)
+                        && standPat + MovePicker.victimValue(pos, move)
+                        + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+                if (!See.atLeast(pos, move, 0)) {
+                    continue;
+                }
+            }
+            pos.makeMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            pos.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > alpha) {
+                if (score >= beta) {
+                    return score;
+                }
+                alpha = score;
+                updatePv(ply, move);
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * orderMvvLva sorts captures so the most valuable victim comes first,
+     * and of those the least valuable attacker. Moves that capture nothing
+     * go last.
+     */
+    private void orderMvvLva(int[] list, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = list[i];
+            int key = MovePicker.mvvLva(pos, move);
+            int j = i - 1;
+            while (j >= 0 && MovePicker.mvvLva(pos, list[j]) < key) {
+                list[j + 1] = list[j];
+                j--;
+            }
+            list[j + 1] = move;
+        }
+    }
+
+    /**
+     * toTable turns a mate score counted from the root into one counted from
+     * the current position, so it is still right when the position is
+     * reached at another ply.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score + ply;
+        } else if (score <= -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * fromTable turns a mate score from the table back into one counted from
+     * the root.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE_BOUND) {
+            return score - ply;
+        } else if (score <= -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * updateQuiet remembers a quiet move that caused a cutoff: it becomes
+     * the newest killer at its ply and the countermove of the move before
+     * it, it gains history and the quiet moves tried before it lose the
+     * same amount.
+     */
+    private void updateQuiet(int move, int depth, int ply, int[] quiets,
+            int quietCount, int[] counter, int lastMove) {
+        int[] killer = killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        if (counter != null) {
+            counter[Move.to(lastMove)] = move;
+        }
+        int[] scores = history[pos.getSideToMove()];
+        int bonus = Math.min(depth * depth, HISTORY_BONUS_MAX);
+        addHistory(scores, move, bonus);
+        for (int i = 0; i < quietCount; i++) {
+            addHistory(scores, quiets[i], -bonus);
+        }
+    }
+
+    /**
+     * addHistory moves a history score towards the limit on the side of the
+     * bonus, by less the closer it already is.
+     */
+    private static void addHistory(int[] scores, int move, int bonus) {
+        int index = move & 0xFFF;
+        scores[index] += bonus - scores[index] * Math.abs(bonus) / HISTORY_MAX;
+    }
+
+    /**
+     * clearOrdering forgets the killer moves and countermoves of the last
+     * search, which belong to other positions, and halves the history
+     * scores so the new search's results count for more.
+     */
+    private void clearOrdering() {
+        for (int[] killer : killers) {
+            killer[0] = Move.NONE;
+            killer[1] = Move.NONE;
+        }
+        for (int[] counter : counterMoves) {
+            Arrays.fill(counter, Move.NONE);
+        }
+        for (int[] scores : history) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * updatePv makes move followed by the line below it the best line from
+     * ply.
+     */
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1,
+                length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    /**
+     * checkLimits stops the search once it runs out of nodes or time.
+     */
+    private void checkLimits() {
+        if (nodes >= nodeLimit || System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * stop asks a running search to stop as soon as it can. It is safe to
+     * call from another thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * setNetwork sets the Network positions are scored with.
+     *
+     * @param network the network or null for the piece-square tables
+     */
+    public void setNetwork(Network network) {
+        pos.setNetwork(network);
+    }
+
+    /**
+     * setListener sets who is told when an iteration finishes.
+     *
+     * @param listener the listener or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * getNodes gets how many nodes the last search visited.
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * getPawnHits gets how many pawn table probes of the last search found
+     * their position.
+     *
+     * @return the number of hits
+     */
+    public long getPawnHits() {
+        return pawnTable.getHits();
+    }
+
+    /**
+     * getPawnMisses gets how many pawn table probes of the last search had
+     * to work the pawn structure out.
+     *
+     * @return the number of misses
+     */
+    public long getPawnMisses() {
+        return pawnTable.getMisses();
+    }
+
+    /**
+     * getQuiescenceNodes gets how many of the nodes of the last search were
+     * in the quiescence search.
+     *
+     * @return the number of quiescence nodes
+     */
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    /**
+     * getCutoffs gets how many beta cutoffs the main search of the last
+     * search had.
+     *
+     * @return the number of cutoffs
+     */
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * getFirstMoveCutoffs gets how many beta cutoffs of the last search came
+     * from the first move tried.
+     *
+     * @return the number of first move cutoffs
+     */
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    /**
+     * setQuiescencePruning turns the delta and static exchange pruning of
+     * the quiescence search on or off, to measure what they save.
+     *
+     * @param pruning whether or not to prune
+     */
+    void setQuiescencePruning(boolean pruning) {
+        quiescencePruning = pruning;
+    }
+
+    /**
+     * getBestMove gets the best move of the last search.
+     *
+     * @return the packed move or Move.NONE
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * getScore gets the score of the last finished iteration.
+     *
+     * @return the score in centipawns from the side to move's point of view
+     */
+    public int getScore() {
+        return bestScore;
+    }
+
+    /**
+     * getDepth gets the depth of the last finished iteration.
+     *
+     * @return the depth in plies
+     */
+    public int getDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * getPvLength gets the length of the best line without copying it.
+     *
+     * @return the number of moves in the line
+     */
+    public int getPvLength() {
+        return pvLength[0];
+    }
+
+    /**
+     * getPvMove gets one move of the best line without copying it.
+     *
+     * @param index the index of the move in the line
+     * @return the packed move
+     */
+    public int getPvMove(int index) {
+        return pv[0][index];
+    }
+
+    /**
+     * getPv gets the best line found by the last search.
+     *
+     * @return the packed moves of the line
+     */
+    public MoveList getPv() {
+        MoveList line = new MoveList(Math.max(pvLength[0], 1));
+        for (int i = 0; i < pvLength[0]; i++) {
+            line.add(pv[0][i]);
+        }
+        return line;
+    }
+}
@@ -0,0 +1,19 @@
+package engine;
+
+/**
+ * SearchListener is told about the progress of a Search, for example to print
+ * UCI info lines while the search is still running.
+ *
+ * @author Ben Clark
+ */
+public interface SearchListener {
+
+    /**
+     * iterationDone is called on the search thread every time an iteration
+     * finishes. The depth, score and best line of the search are those of
+     * the iteration.
+     *
+     * @param search the search that finished the iteration
+     */
+    void iterationDone(Search search);
+}
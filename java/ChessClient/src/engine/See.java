@@ -0,0 +1,114 @@
+package engine;
+
+/**
+ * See is the static exchange evaluator. It works out what a capture wins or
+ * loses once both sides have recaptured on the square with their least
+ * valuable attackers, without playing any moves. The attackers come from
+ * Position.attackersTo, and every time a piece leaves the square's lines the
+ * sliders behind it are added, so batteries and x-rays count.
+ *
+ * Pins are ignored, so a pinned piece can still recapture. That is rarely
+ * wrong and keeps the exchange cheap enough to run on every capture of the
+ * quiescence search.
+ *
+ * @author Ben Clark
+ */
+public final class See {
+
+    /**
+     * What a king is worth in an exchange, more than everything else.
+     */
+    private static final int KING_VALUE = 20000;
+
+    private See() {
+
+    }
+
+    /**
+     * atLeast checks if a move wins at least threshold centipawns once the
+     * exchange on its square is over. Castling, en passant and promotions
+     * are scored as an even exchange.
+     *
+     * @param pos the position before the move
+     * @param move the packed move
+     * @param threshold the least the move has to win
+     * @return whether or not the exchange wins at least threshold
+     */
+    public static boolean atLeast(Position pos, int move, int threshold) {
+        int flags = Move.flags(move);
+        if (flags != Move.QUIET && flags != Move.CAPTURE
+                && flags != Move.DOUBLE_PUSH) {
+            return 0 >= threshold;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+
+        //swap is what the side that just captured stands to lose next
+        int swap = value(pos.pieceAt(to)) - threshold;
+        if (swap < 0) {
+            return false;
+        }
+        swap = value(pos.pieceAt(from)) - swap;
+        if (swap <= 0) {
+            return true;
+        }
+
+        long occupied = pos.occupied() ^ (1L << from) ^ (1L << to);
+        long attackers = pos.attackersTo(to, occupied);
+        long diagonal = pos.pieces(Position.WHITE, Position.BISHOP)
+                | pos.pieces(Position.BLACK, Position.BISHOP)
+                | pos.pieces(Position.WHITE, Position.QUEEN)
+                | pos.pieces(Position.BLACK, Position.QUEEN);
+        long straight = pos.pieces(Position.WHITE, Position.ROOK)
+                | pos.pieces(Position.BLACK, Position.ROOK)
+                | pos.pieces(Position.WHITE, Position.QUEEN)
+                | pos.pieces(Position.BLACK, Position.QUEEN);
+        int side = pos.getSideToMove();
+        //res is 1 while the side that moved is winning the exchange
+        int res = 1;
+        while (true) {
+            side ^= 1;
+            attackers &= occupied;
+            long sideAttackers = attackers & pos.occupancy(side);
+            if (sideAttackers == 0) {
+                break;
+            }
+            res ^= 1;
+
+            int type = Position.PAWN;
+            long bb;
+            while ((bb = sideAttackers & pos.pieces(side, type)) == 0) {
+                type++;
+            }
+            if (type == Position.KING) {
+                //The king can only take if nothing takes it back
+                return (attackers & ~pos.occupancy(side)) != 0
+                        ? res == 0 : res == 1;
+            }
+            swap = Evaluation.VALUE[type] - swap;
+            if (swap < res) {
+                break;
+            }
+            occupied ^= bb & -bb;
+            if (type == Position.PAWN || type == Position.BISHOP
+                    || type == Position.QUEEN) {
+                attackers |= Bitboards.bishopAttacks(to, occupied) & diagonal;
+            }
+            if (type == Position.ROOK || type == Position.QUEEN) {
+                attackers |= Bitboards.rookAttacks(to, occupied) & straight;
+            }
+        }
+        return res == 1;
+    }
+
+    /**
+     * value gets what a piece is worth in an exchange.
+     */
+    private static int value(int piece) {
+        if (piece == Position.EMPTY) {
+            return 0;
+        }
+        int type = Position.typeOf(piece);
+        return type == Position.KING ? KING_VALUE : Evaluation.VALUE[type];
+    }
+}
@@ -0,0 +1,110 @@
+package engine;
+
+/**
+ * Tactics searches a suite of tactical positions twice, once with the plain
+ * capture search at the horizon and once with the delta and static exchange
+ * pruning of the quiescence search, and reports how many nodes each takes,
+ * how many of them were quiescence nodes and how many positions were
+ * solved.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Tactics [depth]
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+public final class Tactics {
+
+    /**
+     * Positions from Win at Chess. Each entry is a FEN and the best move in
+     * SAN.
+     */
+    static final String[][] SUITE = {
+        {"2rr3k/pp3pp1/1nnqbN1p/3pN3/2pP4/2P3Q1/PPB4P/R4RK1 w - - 0 1", "Qg6"},
+        {"8/7p/5k2/5p2/p1p2P2/Pr1pPK2/1P1R3P/8 b - - 0 1", "Rxb2"},
+        {"5rk1/1ppb3p/p1pb4/6q1/3P1p1r/2P1R2P/PP1BQ1P1/5RKN w - - 0 1", "Rg3"},
+        {"r1bq2rk/pp3pbp/2p1p1pQ/7P/3P4/2PB1N2/PP3PPR/2KR4 w - - 0 1", "Qxh7+"},
+        {"5k2/6pp/p1qN4/1p1p4/3P4/2PKP2Q/PP3r2/3R4 b - - 0 1", "Qc4+"},
+        {"7k/p7/1R5K/6r1/6p1/6P1/8/8 w - - 0 1", "Rb7"},
+        {"rnbqkb1r/pppp1ppp/8/4P3/6n1/7P/PPPNPPP1/R1BQKBNR b KQkq - 0 1", "Ne3"},
+        {"r4q1k/p2bR1rp/2p2Q1N/5p2/5p2/2P5/PP3PPP/R5K1 w - - 0 1", "Rf7"},
+        {"3q1rk1/p4pp1/2pb3p/3p4/6Pr/1PNQ4/P1PB1PP1/4RRK1 b - - 0 1", "Bh2+"},
+        {"2br2k1/2q3rn/p2NppQ1/2p1P3/Pp5R/4P3/1P3PPP/3R2K1 w - - 0 1", "Rxh7"},
+        {"r1b1kb1r/3q1ppp/pBp1pn2/8/Np3P2/5B2/PPP3PP/R2Q1RK1 w kq - 0 1", "Bxc6"},
+        {"4k1r1/2p3r1/1pR1p3/3pP2p/3P2qP/P4N2/1PQ4P/5R1K b - - 0 1", "Qxf3+"},
+        {"5rk1/pp4p1/2n1p2p/2Npq3/2p5/6P1/P3P1BP/R4Q1K w - - 0 1", "Qxf8+"},
+        {"r2rb1k1/pp1q1p1p/2n1p1p1/2bp4/5P2/PP1BPR1Q/1BPN2PP/R5K1 w - - 0 1",
+            "Qxh7+"},
+        {"1R6/1brk2p1/4p2p/p1P1Pp2/P7/6P1/1P4P1/2R3K1 w - - 0 1", "Rxb7"},
+        {"r4rk1/ppp2ppp/2n5/2bqp3/8/P2PB3/1PP1NPPP/R2Q1RK1 w - - 0 1", "Nc3"},
+        {"1k5r/pppbn1pp/4q1r1/1P3p2/2NPp3/1QP5/P4PPP/R1B1R1K1 w - - 0 1",
+            "Ne5"},
+        {"R7/P4k2/8/8/8/8/r7/6K1 w - - 0 1", "Rh8"},
+        {"r1b2rk1/ppbn1ppp/4p3/1QP4q/3P4/N4N2/5PPP/R1B2RK1 w - - 0 1", "c6"},
+        {"r2qkb1r/1ppb1ppp/p7/4p3/P1Q1P3/2P5/5PPP/R1B2KNR b kq - 0 1", "Bb5"},
+    };
+
+    private static final int DEFAULT_DEPTH = 6;
+
+    private Tactics() {
+
+    }
+
+    /**
+     * Entry point of the tactical suite.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        try {
+            int depth = args.length > 0 ? Integer.parseInt(args[0])
+                    : DEFAULT_DEPTH;
+            long[] nodes = new long[2];
+            long[] quiescenceNodes = new long[2];
+            long[] time = new long[2];
+            int[] solved = new int[2];
+            Position pos = new Position();
+            int[] moves = new int[MoveGenerator.MAX_MOVES];
+            for (String[] test : SUITE) {
+                Fen.load(pos, test[0]);
+                int best = San.parse(pos, test[1], moves);
+                StringBuilder line = new StringBuilder(test[1]);
+                for (int pruned = 0; pruned < 2; pruned++) {
+                    Search search = new Search(new TranspositionTable(16));
+                    search.setQuiescencePruning(pruned == 1);
+                    long start = System.nanoTime();
+                    int move = search.search(pos, depth, 0, 0);
+                    time[pruned] += System.nanoTime() - start;
+                    nodes[pruned] += search.getNodes();
+                    quiescenceNodes[pruned] += search.getQuiescenceNodes();
+                    boolean found = best != Move.NONE && move == best;
+                    if (found) {
+                        solved[pruned]++;
+                    }
+                    line.append(pruned == 0 ? "  plain: " : "  pruned: ")
+                            .append(search.getNodes()).append(" nodes ")
+                            .append(Move.toString(move))
+                            .append(found ? " ok" : " missed");
+                }
+                System.out.println(line);
+            }
+            for (int pruned = 0; pruned < 2; pruned++) {
+                System.out.println(String.format(
+                        "%s: %d nodes  %.1f%% quiescence  %d/%d solved  %d ms",
+                        pruned == 0 ? "Plain capture search"
+                                : "Delta and SEE pruning",
+                        nodes[pruned],
+                        100.0 * quiescenceNodes[pruned]
+                        / Math.max(1, nodes[pruned]),
+                        solved[pruned], SUITE.length, time[pruned] / 1000000));
+            }
+            System.out.println(String.format("Node reduction: %.1f%%",
+                    100.0 * (nodes[0] - nodes[1]) / Math.max(1, nodes[0])));
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            System.out.println("Usage: Tactics [depth]");
+            System.exit(2);
+        }
+    }
+}
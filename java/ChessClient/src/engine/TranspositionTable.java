@@ -0,0 +1,219 @@
+package engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * TranspositionTable remembers what the search found out about positions it
+ * has already searched, keyed by their Zobrist key. Each entry packs the best
+ * move, score, depth, bound and age of a position into one long.
+ *
+ * The table lives in direct ByteBuffers outside of the Java heap so even a
+ * table of many gigabytes adds nothing for the garbage collector to scan.
+ * A direct buffer holds at most 2 GB, so large tables are split into chunks.
+ * The JVM only allows as much direct memory as heap by default, so tables
+ * larger than the heap need -XX:MaxDirectMemorySize.
+ *
+ * Many search threads read and write the table without locks. An entry is
+ * stored as the key XORed with the data next to the data itself. If two
+ * threads write the same entry at once, the key check fails and the entry is
+ * treated as a miss instead of handing back another position's data.
+ *
+ * Entries are grouped into buckets of four that fill one cache line. A new
+ * entry replaces the same position if it is in the bucket, otherwise the
+ * entry with the lowest depth, where entries from older searches count as
+ * shallower the older they are.
+ *
+ * @author Ben Clark
+ */
+public final class TranspositionTable {
+
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_ENTRIES = 4;
+    private static final int BUCKET_BYTES = ENTRY_BYTES * BUCKET_ENTRIES;
+
+    /**
+     * Bytes in each chunk, 1 GB.
+     */
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    /**
+     * Every move played takes a search further from the ones before it, so
+     * the age is counted modulo 64 in six bits.
+     */
+    private static final int AGE_MASK = 63;
+
+    private final ByteBuffer[] chunks;
+    private final long bucketMask;
+    private int age;
+
+    /**
+     * Constructs a table that uses about the given number of megabytes. The
+     * number of buckets is rounded down to a power of two.
+     *
+     * @param megabytes the size of the table
+     */
+    public TranspositionTable(int megabytes) {
+        long bytes = Long.highestOneBit(Math.max(1L, megabytes) * 1024 * 1024);
+        bucketMask = bytes / BUCKET_BYTES - 1;
+        int chunkBytes = (int) Math.min(bytes, 1L << CHUNK_SHIFT);
+        chunks = new ByteBuffer[(int) (bytes / chunkBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect(chunkBytes)
+                    .order(ByteOrder.nativeOrder());
+        }
+    }
+
+    /**
+     * clear empties the table.
+     */
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i += 8) {
+                chunk.putLong(i, 0L);
+            }
+        }
+        age = 0;
+    }
+
+    /**
+     * newSearch ages the table so entries from earlier searches are replaced
+     * before entries of the new one.
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * probe looks up a position.
+     *
+     * @param key the Zobrist key of the position
+     * @return the packed data of the entry, or 0 if the position is not in
+     * the table
+     */
+    public long probe(long key) {
+        long bucket = (key & bucketMask) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int offset = (int) (bucket & CHUNK_MASK);
+        for (int i = 0; i < BUCKET_ENTRIES; i++, offset += ENTRY_BYTES) {
+            long data = chunk.getLong(offset + 8);
+            if ((chunk.getLong(offset) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * store saves what the search found out about a position.
+     *
+     * @param key the Zobrist key of the position
+     * @param move the best move or Move.NONE
+     * @param score the score, with mates relative to the position
+     * @param depth the depth that was searched
+     * @param bound whether the score is exact or a lower or upper bound
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        long bucket = (key & bucketMask) * BUCKET_BYTES;
+        ByteBuffer chunk = chunks[(int) (bucket >>> CHUNK_SHIFT)];
+        int start = (int) (bucket & CHUNK_MASK);
+
+        int victim = start;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = 0, offset = start; i < BUCKET_ENTRIES;
+                i++, offset += ENTRY_BYTES) {
+            long old = chunk.getLong(offset + 8);
+            if ((chunk.getLong(offset) ^ old) == key) {
+                //Keep the old best move if this search didn't find one
+                if (move == Move.NONE) {
+                    move = move(old);
+                }
+                victim = offset;
+                break;
+            }
+            int value = old == 0 ? Integer.MIN_VALUE
+                    : depth(old) - 4 * ((age - age(old)) & AGE_MASK);
+            if (value < victimValue) {
+                victimValue = value;
+                victim = offset;
+            }
+        }
+
+        long data = (move & 0xFFFFL)
+                | ((score & 0xFFFFL) << 16)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 32)
+                | ((long) bound << 40)
+                | ((long) age << 42);
+        chunk.putLong(victim, key ^ data);
+        chunk.putLong(victim + 8, data);
+    }
+
+    /**
+     * hashfull estimates how full the table is from the first thousand
+     * entries.
+     *
+     * @return how many of every thousand entries are from the current search
+     */
+    public int hashfull() {
+        ByteBuffer chunk = chunks[0];
+        int entries = Math.min(1000, chunk.capacity() / ENTRY_BYTES);
+        int used = 0;
+        for (int i = 0; i < entries; i++) {
+            long data = chunk.getLong(i * ENTRY_BYTES + 8);
+            if (data != 0 && age(data) == age) {
+                used++;
+            }
+        }
+        return used * 1000 / entries;
+    }
+
+    /**
+     * move gets the best move of an entry.
+     *
+     * @param data the packed data of the entry
+     * @return the packed move or Move.NONE
+     */
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    /**
+     * score gets the score of an entry.
+     *
+     * @param data the packed data of the entry
+     * @return the score
+     */
+    public static int score(long data) {
+        return (short) (data >>> 16);
+    }
+
+    /**
+     * depth gets the depth an entry was searched to.
+     *
+     * @param data the packed data of the entry
+     * @return the depth
+     */
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+
+    /**
+     * bound gets whether the score of an entry is exact or a bound.
+     *
+     * @param data the packed data of the entry
+     * @return one of the BOUND constants
+     */
+    public static int bound(long data) {
+        return (int) (data >>> 40) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 42) & AGE_MASK;
+    }
+}
@@ -0,0 +1,670 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uci runs the engine without a window over the Universal Chess Interface,
+ * reading commands from stdin and writing replies to stdout. Any UCI GUI or
+ * match runner can use it.
+ *
+ * Lines are read into a String and then split by moving indexes along it,
+ * so taking apart a go or position command allocates nothing per token.
+ * Info lines are built in a reused StringBuilder and written from a reused
+ * char array.
+ *
+ * Usage:
+ * <pre>
+ * java -cp ChessClient.jar engine.Uci
+ * </pre>
+ *
+ * @author Ben Clark
+ */
+public final class Uci {
+
+    private static final int DEFAULT_HASH = 64;
+    private static final int MAX_HASH = 16384;
+    private static final int MAX_THREADS = 256;
+    private static final int MAX_PAWN_HASH = 1024;
+
+    /**
+     * Moves assumed to be left in the game when go gives no movestogo.
+     */
+    private static final int MOVES_TO_GO = 30;
+
+    /**
+     * Time kept back for the GUI to receive the move, in milliseconds.
+     */
+    private static final int MOVE_OVERHEAD = 50;
+
+    private final BufferedReader in;
+    private final Writer out;
+    private final StringBuilder output = new StringBuilder(1024);
+    private char[] outputChars = new char[1024];
+
+    private final Position position = new Position();
+    private final Position searchRoot = new Position();
+    private final int[] legalMoves = new int[MoveGenerator.MAX_MOVES];
+
+    private int hashMegabytes = DEFAULT_HASH;
+    private int threads = 1;
+    private int pawnHashMegabytes = PawnTable.DEFAULT_MEGABYTES;
+    private Network network;
+    private Book book;
+    private boolean ownBook = true;
+    private final Random bookRandom = new Random();
+    private TranspositionTable table;
+    private ParallelSearch search;
+
+    /**
+     * Runs go commands so the input thread is free to read stop.
+     */
+    private final ExecutorService goThread;
+
+    /**
+     * Stops a search once the time of a ponder hit runs out.
+     */
+    private final ScheduledExecutorService timer;
+    private ScheduledFuture<?> stopTimer;
+    private Future<?> running;
+
+    //State of the running go command, guarded by this
+    private boolean infinite;
+    private boolean pondering;
+    private boolean stopRequested;
+    private long ponderMillis;
+    private long startTime;
+
+    //The line being read and the bounds of its current token
+    private String line;
+    private int tokenStart;
+    private int tokenEnd;
+
+    /**
+     * Constructs a Uci that talks over stdin and stdout.
+     */
+    public Uci() {
+        in = new BufferedReader(new InputStreamReader(System.in));
+        out = new BufferedWriter(new OutputStreamWriter(System.out));
+        goThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "uci-go");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "uci-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        table = new TranspositionTable(hashMegabytes);
+        search = newSearch();
+    }
+
+    /**
+     * Entry point of the UCI engine.
+     *
+     * @param args the command line arguments, which are not used
+     */
+    public static void main(String[] args) {
+        try {
+            new Uci().run();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * run reads commands until quit or the end of the input.
+     *
+     * @throws IOException if stdin or stdout fail
+     */
+    public void run() throws IOException {
+        while ((line = in.readLine()) != null) {
+            tokenEnd = 0;
+            if (!nextToken()) {
+                continue;
+            }
+            if (tokenIs("uci")) {
+                print("id name Chess");
+                print("id author Ben Clark");
+                print("option name Hash type spin default " + DEFAULT_HASH
+                        + " min 1 max " + MAX_HASH);
+                print("option name Threads type spin default 1 min 1 max "
+                        + MAX_THREADS);
+                print("option name PawnHash type spin default "
+                        + PawnTable.DEFAULT_MEGABYTES + " min 1 max "
+                        + MAX_PAWN_HASH);
+                print("option name Ponder type check default false");
+                print("option name EvalFile type string default <empty>");
+                print("option name OwnBook type check default true");
+                print("option name BookFile type string default <empty>");
+                print("uciok");
+            } else if (tokenIs("isready")) {
+                print("readyok");
+            } else if (tokenIs("setoption")) {
+                setOption();
+            } else if (tokenIs("ucinewgame")) {
+                stopAndWait();
+                table.clear();
+            } else if (tokenIs("position")) {
+                stopAndWait();
+                setPosition();
+            } else if (tokenIs("go")) {
+                stopAndWait();
+                go();
+            } else if (tokenIs("stop")) {
+                stop();
+            } else if (tokenIs("ponderhit")) {
+                ponderHit();
+            } else if (tokenIs("bench")) {
+                stopAndWait();
+                bench();
+            } else if (tokenIs("quit")) {
+                break;
+            }
+        }
+        stopAndWait();
+        search.shutdown();
+        goThread.shutdown();
+        timer.shutdown();
+    }
+
+    /**
+     * setOption handles setoption name Hash value n, setoption name Threads
+     * value n, setoption name PawnHash value n, setoption name EvalFile
+     * value file, setoption name BookFile value file and setoption name
+     * OwnBook value true|false.
+     */
+    private void setOption() {
+        int nameStart = -1;
+        int nameEnd = -1;
+        int valueStart = -1;
+        long value = -1;
+        while (nextToken()) {
+            if (tokenIs("name") && nextToken()) {
+                nameStart = tokenStart;
+                nameEnd = tokenEnd;
+            } else if (tokenIs("value") && nextToken()) {
+                valueStart = tokenStart;
+                value = tokenNumber();
+                //The value is the rest of the line so paths can have spaces
+                break;
+            }
+        }
+        if (nameStart < 0 || valueStart < 0) {
+            return;
+        }
+        stopAndWait();
+        if (regionIs(nameStart, nameEnd, "EvalFile")) {
+            setEvalFile(line.substring(valueStart).trim());
+        } else if (regionIs(nameStart, nameEnd, "BookFile")) {
+            setBookFile(line.substring(valueStart).trim());
+        } else if (regionIs(nameStart, nameEnd, "OwnBook")) {
+            ownBook = regionIs(valueStart, tokenEnd, "true");
+        } else if (value < 0) {
+            return;
+        } else if (regionIs(nameStart, nameEnd, "Hash")) {
+            hashMegabytes = (int) Math.max(1, Math.min(value, MAX_HASH));
+            search.shutdown();
+            table = new TranspositionTable(hashMegabytes);
+            search = newSearch();
+        } else if (regionIs(nameStart, nameEnd, "Threads")) {
+            threads = (int) Math.max(1, Math.min(value, MAX_THREADS));
+            search.shutdown();
+            search = newSearch();
+        } else if (regionIs(nameStart, nameEnd, "PawnHash")) {
+            pawnHashMegabytes = (int) Math.max(1, Math.min(value,
+                    MAX_PAWN_HASH));
+            search.shutdown();
+            search = newSearch();
+        }
+    }
+
+    /**
+     * setEvalFile loads the network the search scores positions with, or
+     * goes back to the piece-square tables for &lt;empty&gt;.
+     */
+    private void setEvalFile(String file) {
+        network = null;
+        if (!file.isEmpty() && !file.equals("<empty>")) {
+            try {
+                network = Network.load(file);
+                print("info string loaded " + file + " with the "
+                        + network.getKernel().getName() + " kernel");
+            } catch (IOException e) {
+                print("info string " + e.getMessage());
+            }
+        }
+        search.setNetwork(network);
+    }
+
+    /**
+     * setBookFile opens the opening book go plays from, or closes it for
+     * &lt;empty&gt;.
+     */
+    private void setBookFile(String file) {
+        book = null;
+        if (!file.isEmpty() && !file.equals("<empty>")) {
+            try {
+                book = Book.open(file);
+                print("info string loaded " + file + " with " + book.size()
+                        + " entries");
+            } catch (IOException e) {
+                print("info string " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * setPosition handles position startpos|fen ... [moves ...].
+     */
+    private void setPosition() {
+        if (!nextToken()) {
+            return;
+        }
+        if (tokenIs("startpos")) {
+            position.setStartPosition();
+            nextToken();
+        } else if (tokenIs("fen")) {
+            int fenStart = tokenEnd;
+            int fenEnd = line.length();
+            while (nextToken()) {
+                if (tokenIs("moves")) {
+                    fenEnd = tokenStart;
+                    break;
+                }
+            }
+            try {
+                Fen.load(position, line.substring(fenStart, fenEnd));
+            } catch (IllegalArgumentException e) {
+                print("info string " + e.getMessage());
+                position.setStartPosition();
+                return;
+            }
+        } else {
+            return;
+        }
+
+        if (tokenStart < tokenEnd && tokenIs("moves")) {
+            while (nextToken()) {
+                int move = findMove();
+                if (move == Move.NONE) {
+                    print("info string Illegal move "
+                            + line.substring(tokenStart, tokenEnd));
+                    return;
+                }
+                position.makeMove(move);
+            }
+        }
+    }
+
+    /**
+     * findMove matches the current token such as e7e8q against the legal
+     * moves of the position.
+     *
+     * @return the packed move or Move.NONE if it isn't legal
+     */
+    private int findMove() {
+        int length = tokenEnd - tokenStart;
+        if (length != 4 && length != 5) {
+            return Move.NONE;
+        }
+        int from = square(tokenStart);
+        int to = square(tokenStart + 2);
+        int promotion = length == 5
+                ? Position.typeOf(line.charAt(tokenStart + 4)) : Position.EMPTY;
+        int count = MoveGenerator.generate(position, legalMoves);
+        for (int i = 0; i < count; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (Move.isPromotion(move) ? Move.promotion(move)
+                    == promotion : promotion == Position.EMPTY)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * square reads the square written at an index of the line.
+     */
+    private int square(int index) {
+        int file = line.charAt(index) - 'a';
+        int rank = line.charAt(index + 1) - '1';
+        if (file < 0 || file > 7 || rank < 0 || rank > 7) {
+            return Position.NO_SQUARE;
+        }
+        return Position.square(file, rank);
+    }
+
+    /**
+     * go handles go with depth, nodes, movetime, wtime, btime, winc, binc,
+     * movestogo, infinite and ponder, then starts the search on the go
+     * thread. A position in the opening book is answered with a book move
+     * straight away, unless the search has to run until it is stopped.
+     */
+    private void go() {
+        int depth = Search.MAX_PLY;
+        long nodes = 0;
+        long moveTime = 0;
+        long time = 0;
+        long increment = 0;
+        long movesToGo = 0;
+        boolean clock = false;
+        boolean white = position.getSideToMove() == Position.WHITE;
+        boolean goInfinite = false;
+        boolean goPonder = false;
+        while (nextToken()) {
+            if (tokenIs("infinite")) {
+                goInfinite = true;
+            } else if (tokenIs("ponder")) {
+                goPonder = true;
+            } else if (tokenIs("depth") && nextToken()) {
+                depth = (int) Math.max(1, Math.min(tokenNumber(),
+                        Search.MAX_PLY));
+            } else if (tokenIs("nodes") && nextToken()) {
+                nodes = tokenNumber();
+            } else if (tokenIs("movetime") && nextToken()) {
+                moveTime = tokenNumber();
+            } else if (tokenIs(white ? "wtime" : "btime") && nextToken()) {
+                time = tokenNumber();
+                clock = true;
+            } else if (tokenIs(white ? "winc" : "binc") && nextToken()) {
+                increment = tokenNumber();
+            } else if (tokenIs("movestogo") && nextToken()) {
+                movesToGo = tokenNumber();
+            }
+        }
+
+        if (book != null && ownBook && !goInfinite && !goPonder) {
+            int move = book.pick(position, bookRandom);
+            if (move != Move.NONE) {
+                print("info string book move");
+                printBestMove(move, Move.NONE);
+                return;
+            }
+        }
+
+        long millis = moveTime;
+        if (millis == 0 && clock) {
+            millis = timeForMove(time, increment, movesToGo);
+        }
+        synchronized (this) {
+            infinite = goInfinite;
+            pondering = goPonder;
+            stopRequested = false;
+            ponderMillis = millis;
+            startTime = System.nanoTime();
+        }
+
+        searchRoot.copyFrom(position);
+        search.reset();
+        int searchDepth = depth;
+        long searchNodes = nodes;
+        long searchMillis = goInfinite || goPonder ? 0 : millis;
+        running = goThread.submit(() -> {
+            int best = search.run(searchRoot, searchDepth, searchNodes,
+                    searchMillis);
+            waitForStop();
+            printPawnTable();
+            printBestMove(best, search.getPonderMove());
+        });
+    }
+
+    /**
+     * timeForMove splits the time left on the clock between the moves still
+     * to play, and adds most of the increment.
+     */
+    private static long timeForMove(long time, long increment,
+            long movesToGo) {
+        long moves = movesToGo > 0 ? movesToGo + 1 : MOVES_TO_GO;
+        long millis = time / moves + increment * 3 / 4;
+        return Math.max(1, Math.min(millis, time - MOVE_OVERHEAD));
+    }
+
+    /**
+     * waitForStop holds the best move back while pondering or searching
+     * infinitely, which UCI only allows to end with stop or ponderhit.
+     */
+    private synchronized void waitForStop() {
+        while ((infinite || pondering) && !stopRequested) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * stop ends the running search, which then prints its best move.
+     */
+    private synchronized void stop() {
+        stopRequested = true;
+        if (stopTimer != null) {
+            stopTimer.cancel(false);
+        }
+        search.stop();
+        notifyAll();
+    }
+
+    /**
+     * ponderHit turns a ponder search into a normal one. The time the go
+     * command asked for starts now.
+     */
+    private synchronized void ponderHit() {
+        if (!pondering) {
+            return;
+        }
+        pondering = false;
+        if (!infinite && ponderMillis > 0) {
+            stopTimer = timer.schedule(search::stop, ponderMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+        notifyAll();
+    }
+
+    /**
+     * bench handles bench [depth], which runs the Bench positions. It is not
+     * part of UCI but saves starting another program to check a build.
+     */
+    private void bench() {
+        int depth = Bench.DEFAULT_DEPTH;
+        if (nextToken() && tokenNumber() > 0) {
+            depth = (int) Math.min(tokenNumber(), Search.MAX_PLY);
+        }
+        Bench.run(depth);
+    }
+
+    /**
+     * stopAndWait stops the running search, if there is one, and waits for
+     * it to print its best move.
+     */
+    private void stopAndWait() {
+        if (running == null) {
+            return;
+        }
+        stop();
+        try {
+            running.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println(e.getMessage());
+        }
+        running = null;
+    }
+
+    /**
+     * newSearch makes a search with the current options that prints an info
+     * line after every iteration.
+     */
+    private ParallelSearch newSearch() {
+        ParallelSearch parallel = new ParallelSearch(threads, table,
+                pawnHashMegabytes);
+        parallel.setListener(this::printInfo);
+        parallel.setNetwork(network);
+        return parallel;
+    }
+
+    /**
+     * printInfo writes the info line of a finished iteration. It runs on the
+     * main search thread.
+     */
+    private synchronized void printInfo(Search main) {
+        long millis = (System.nanoTime() - startTime) / 1000000;
+        long nodes = search.getNodes();
+        int score = main.getScore();
+        output.setLength(0);
+        output.append("info depth ").append(main.getDepth());
+        if (score >= Search.MATE_BOUND) {
+            output.append(" score mate ").append((Search.MATE - score + 1) / 2);
+        } else if (score <= -Search.MATE_BOUND) {
+            output.append(" score mate ").append(-(Search.MATE + score) / 2);
+        } else {
+            output.append(" score cp ").append(score);
+        }
+        output.append(" nodes ").append(nodes)
+                .append(" nps ").append(nodes * 1000 / Math.max(millis, 1))
+                .append(" time ").append(millis)
+                .append(" hashfull ").append(search.getHashfull())
+                .append(" pv");
+        for (int i = 0; i < main.getPvLength(); i++) {
+            output.append(' ');
+            appendMove(main.getPvMove(i));
+        }
+        flushOutput();
+    }
+
+    /**
+     * printPawnTable writes the pawn table hits and misses of the search as
+     * an info string, since UCI has no field for them.
+     */
+    private synchronized void printPawnTable() {
+        output.setLength(0);
+        output.append("info string pawnhash hits ")
+                .append(search.getPawnHits()).append(" misses ")
+                .append(search.getPawnMisses());
+        flushOutput();
+    }
+
+    /**
+     * printBestMove writes the bestmove line that ends a search.
+     */
+    private synchronized void printBestMove(int best, int ponder) {
+        output.setLength(0);
+        output.append("bestmove ");
+        if (best == Move.NONE) {
+            output.append("0000");
+        } else {
+            appendMove(best);
+            if (ponder != Move.NONE) {
+                output.append(" ponder ");
+                appendMove(ponder);
+            }
+        }
+        flushOutput();
+    }
+
+    /**
+     * appendMove writes a move such as e7e8q to the output line.
+     */
+    private void appendMove(int move) {
+        Move.appendSquare(output, Move.from(move));
+        Move.appendSquare(output, Move.to(move));
+        if (Move.isPromotion(move)) {
+            output.append(Position.TYPE_CHARS.charAt(Move.promotion(move)));
+        }
+    }
+
+    /**
+     * print writes a line that isn't on the search path.
+     */
+    private synchronized void print(String text) {
+        output.setLength(0);
+        output.append(text);
+        flushOutput();
+    }
+
+    /**
+     * flushOutput writes the output line and a newline to stdout.
+     */
+    private void flushOutput() {
+        output.append('\n');
+        int length = output.length();
+        if (outputChars.length < length) {
+            outputChars = new char[length * 2];
+        }
+        output.getChars(0, length, outputChars, 0);
+        try {
+            out.write(outputChars, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * nextToken moves to the next word of the line.
+     *
+     * @return whether or not there was another word
+     */
+    private boolean nextToken() {
+        int i = tokenEnd;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        tokenStart = i;
+        while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        tokenEnd = i;
+        return tokenStart < tokenEnd;
+    }
+
+    /**
+     * tokenIs checks if the current word is the given word.
+     */
+    private boolean tokenIs(String word) {
+        return regionIs(tokenStart, tokenEnd, word);
+    }
+
+    /**
+     * regionIs checks if part of the line is the given word.
+     */
+    private boolean regionIs(int start, int end, String word) {
+        return end - start == word.length()
+                && line.regionMatches(start, word, 0, word.length());
+    }
+
+    /**
+     * tokenNumber reads the current word as a number. A word that isn't a
+     * number reads as 0 and a negative number, which clocks can send, as its
+     * value below 0.
+     */
+    private long tokenNumber() {
+        long value = 0;
+        boolean negative = false;
+        for (int i = tokenStart; i < tokenEnd; i++) {
+            char c = line.charAt(i);
+            if (i == tokenStart && c == '-') {
+                negative = true;
+            } else if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+            } else {
+                return 0;
+            }
+        }
+        return negative ? -value : value;
+    }
+}
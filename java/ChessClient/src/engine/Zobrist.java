@@ -0,0 +1,76 @@
+package engine;
+
+/**
+ * Zobrist holds the random numbers used to hash a Position into a 64-bit key.
+ * The key of a position is the XOR of one number for every piece on its
+ * square, one for the castling rights, one for the en passant file when a
+ * capture is possible and one when black is to move, so it can be updated
+ * with a few XORs as moves are made and taken back.
+ *
+ * The numbers come from a fixed seed so keys are the same between runs and
+ * can be stored in files such as an opening book.
+ *
+ * @author Ben Clark
+ */
+public final class Zobrist {
+
+    /**
+     * One number for every piece on every square, indexed by
+     * Position.piece(color, type) then square.
+     */
+    public static final long[][] PIECE_SQUARE = new long[12][64];
+
+    /**
+     * One number for every combination of castling rights. It is the XOR of
+     * a number for each right so having no rights adds nothing to the key.
+     */
+    public static final long[] CASTLING = new long[16];
+
+    /**
+     * One number for the file of the en passant square.
+     */
+    public static final long[] EN_PASSANT = new long[8];
+
+    /**
+     * XORed in when black is to move.
+     */
+    public static final long SIDE;
+
+    static {
+        long[] seed = {0x9E3779B97F4A7C15L};
+        for (long[] squares : PIECE_SQUARE) {
+            for (int sq = 0; sq < 64; sq++) {
+                squares[sq] = random(seed);
+            }
+        }
+        long[] rights = {random(seed), random(seed), random(seed),
+            random(seed)};
+        for (int i = 0; i < CASTLING.length; i++) {
+            for (int right = 0; right < rights.length; right++) {
+                if ((i & (1 << right)) != 0) {
+                    CASTLING[i] ^= rights[right];
+                }
+            }
+        }
+        for (int i = 0; i < EN_PASSANT.length; i++) {
+            EN_PASSANT[i] = random(seed);
+        }
+        SIDE = random(seed);
+    }
+
+    private Zobrist() {
+
+    }
+
+    /**
+     * random is the xorshift64star generator.
+     */
+    private static long random(long[] seed) {
+        long s = seed[0];
+        s ^= s >>> 12;
+        s ^= s << 25;
+        s ^= s >>> 27;
+        seed[0] = s;
+        return s * 2685821657736338717L;
+    }
+}
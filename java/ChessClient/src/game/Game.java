@@ -1,16 +1,25 @@
 package game;
 
 import static game.PieceType.*;
+import engine.Fen;
+import engine.Move;
+import engine.MoveGenerator;
+import engine.MoveList;
+import engine.Outcome;
+import engine.PgnWriter;
+import engine.Position;
+import engine.San;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
-import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 import javafx.scene.*;
 import javafx.scene.control.*;
 import javafx.scene.control.Alert.*;
-import javafx.scene.image.Image;
 import javafx.scene.layout.*;
 import javafx.stage.*;
 
@@ -58,34 +67,43 @@ public abstract class Game extends Pane {
     protected Group pieceGroup;
 
     /**
-     * KingLocation keeps track of the current turns king.
+     * The headless position the rules are checked against. The tiles and
+     * pieces are only a view of this position.
      */
-    protected KingLocation kingLoc;
+    protected final Position position;
 
     /**
-     * When a pawn moves two squares forward this becomes that pawn. Used in en
-     * passant.
+     * The legal moves of the side to move in position. They are generated
+     * once after every move and every rule check reads from them.
      */
-    protected Piece doubleMovePawn;
+    private final int[] legalMoves;
 
-    private int stalemateCounter;
+    private int legalMoveCount;
 
     /**
-     * Keeps copies of the current board in the form of an Arraylist. If there
-     * is every a value of 3 in one if the buckets the game is a draw.
+     * The history of the game stored as the packed moves that were played on
+     * position.
      */
-    protected HashMap<ArrayList<Integer>, Integer> threeRepetition;
+    protected final MoveList history;
 
     /**
-     * The history of the game stored as 4 int's and if there was a pawn
-     * promotion then also a char.
+     * notationHistory is the algebraic notation for the moves.
      */
-    protected ArrayList<String> history;
+    protected final ArrayList<String> notationHistory;
 
     /**
-     * notationHistory is the algebraic notation for the moves.
+     * The notation of the move being made. The check or mate sign is added
+     * once typeOfMove says which it is.
      */
-    //protected ArrayList<String> notationHistory;
+    private final StringBuilder notation;
+
+    private final int[] notationMoves;
+
+    /**
+     * The FEN of the position the game started from.
+     */
+    private String startFen;
+
     /**
      * typeOfMove represents the last move as an enum. This helps
      * notationHistory make the algebraic notation.
@@ -109,12 +127,16 @@ public abstract class Game extends Pane {
         Group tileGroup = new Group();
         pieceGroup = new Group();
         board = new Tile[WIDTH][HEIGHT];
-        doubleMovePawn = null;
-        kingLoc = new KingLocation(4, 7, 4, 0);
-        threeRepetition = new HashMap<>();
+        position = new Position();
+        legalMoves = new int[MoveGenerator.MAX_MOVES];
+        legalMoveCount = MoveGenerator.generate(position, legalMoves);
         turn = true;
         team = true;
-        history = new ArrayList<>();
+        history = new MoveList();
+        notationHistory = new ArrayList<>();
+        notation = new StringBuilder(8);
+        notationMoves = new int[MoveGenerator.MAX_MOVES];
+        startFen = Fen.START;
 
         this.setPrefSize((WIDTH) * TILE_SIZE, HEIGHT * TILE_SIZE);
         this.getChildren().addAll(tileGroup, pieceGroup);
@@ -128,88 +150,184 @@ public abstract class Game extends Pane {
             }
         }
 
-        //Black's back line
-        initPiece("/Images/rook_black.png", 0, 0, false, ROOK);
-        initPiece("/Images/knight_black.png", 1, 0, false, KNIGHT);
-        initPiece("/Images/bishop_black.png", 2, 0, false, BISHOP);
-        initPiece("/Images/queen_black.png", 3, 0, false, QUEEN);
-        initPiece("/Images/king_black.png", 4, 0, false, KING);
-        initPiece("/Images/bishop_black.png", 5, 0, false, BISHOP);
-        initPiece("/Images/knight_black.png", 6, 0, false, KNIGHT);
-        initPiece("/Images/rook_black.png", 7, 0, false, ROOK);
-
-        //White's back line
-        initPiece("/Images/rook_white.png", 0, 7, true, ROOK);
-        initPiece("/Images/knight_white.png", 1, 7, true, KNIGHT);
-        initPiece("/Images/bishop_white.png", 2, 7, true, BISHOP);
-        initPiece("/Images/queen_white.png", 3, 7, true, QUEEN);
-        initPiece("/Images/king_white.png", 4, 7, true, KING);
-        initPiece("/Images/bishop_white.png", 5, 7, true, BISHOP);
-        initPiece("/Images/knight_white.png", 6, 7, true, KNIGHT);
-        initPiece("/Images/rook_white.png", 7, 7, true, ROOK);
-
-        //Pawns
-        for (int x = 0; x < 8; x++) {
-            initPiece("/Images/pawn_white.png", x, 6, true, PAWN);
-            initPiece("/Images/pawn_black.png", x, 1, false, PAWN);
+        placePieces();
+    }
+
+    /**
+     * toSquare converts a tile location into a square of the position. Tile y
+     * 0 is black's back line which is the eighth rank of the position.
+     *
+     * @param x the x location of the tile
+     * @param y the y location of the tile
+     * @return the square of the position
+     */
+    protected static int toSquare(int x, int y) {
+        return Position.square(x, HEIGHT - 1 - y);
+    }
+
+    /**
+     * toX converts a square of the position into the x location of its tile.
+     *
+     * @param sq the square of the position
+     * @return the x location of the tile
+     */
+    protected static int toX(int sq) {
+        return sq & 7;
+    }
+
+    /**
+     * toY converts a square of the position into the y location of its tile.
+     *
+     * @param sq the square of the position
+     * @return the y location of the tile
+     */
+    protected static int toY(int sq) {
+        return HEIGHT - 1 - (sq >>> 3);
+    }
+
+    /**
+     * promotionChar gets the character makeMove takes for the piece a move
+     * promotes to.
+     *
+     * @param move the packed move
+     * @return the promotion character or a space if the move isn't one
+     */
+    protected static char promotionChar(int move) {
+        return Move.isPromotion(move)
+                ? Position.TYPE_CHARS.charAt(Move.promotion(move)) : ' ';
+    }
+
+    /**
+     * Takes in a pixel location on the board for either x or y. Then converts
+     * that to a tile location.
+     *
+     * @param pixel double representing some pixel location
+     * @return the tile associated with that pixel location.
+     */
+    private static int toBoard(double pixel) {
+        return (int) (pixel + TILE_SIZE / 2) / TILE_SIZE;
+    }
+
+    /**
+     * toPieceType converts a piece type of the position into a PieceType.
+     *
+     * @param type the type of the position's piece
+     * @return the PieceType
+     */
+    private static PieceType toPieceType(int type) {
+        char c = Position.TYPE_CHARS.charAt(type);
+        for (PieceType pieceType : PieceType.values()) {
+            if (pieceType.type == c) {
+                return pieceType;
+            }
         }
-        addBoardToMap();
+        throw new IllegalArgumentException("Bad piece type: " + type);
     }
 
     /**
-     * Converts the board into an ArrayList of ints based on their enum value.
-     * Then checks to see if that board is currently stored if it is increment
-     * the value. if not then add the board with value to the map.
+     * placePieces puts a Piece on every tile whose square has a piece in
+     * position. The pieces already on the board are used first: a piece is
+     * moved to a square that needs one of its kind, then one left over
+     * changes type if its team still needs a piece. New pieces are only
+     * made for what is still missing, and the rest are taken off the board.
      */
-    protected final void addBoardToMap() {
-        ArrayList<Integer> currentBoard = new ArrayList<>();
+    private void placePieces() {
+        List<Piece> spare = new ArrayList<>();
         for (int x = 0; x < WIDTH; x++) {
             for (int y = 0; y < HEIGHT; y++) {
                 if (board[x][y].hasPiece()) {
-                    Piece p = board[x][y].getPiece();
-                    int pieceValue = p.getType().type;
-                    if (!p.getTeam()) {
-                        pieceValue *= -1;
+                    spare.add(board[x][y].getPiece());
+                    board[x][y].setPiece(null);
+                }
+            }
+        }
+
+        //Pieces that keep their type first, then any of the same team
+        for (int pass = 0; pass < 2; pass++) {
+            for (int sq = 0; sq < 64; sq++) {
+                int p = position.pieceAt(sq);
+                int x = toX(sq);
+                int y = toY(sq);
+                if (p == Position.EMPTY || board[x][y].hasPiece()) {
+                    continue;
+                }
+                boolean pieceTeam = Position.colorOf(p) == Position.WHITE;
+                PieceType type = toPieceType(Position.typeOf(p));
+                for (int i = 0; i < spare.size(); i++) {
+                    Piece piece = spare.get(i);
+                    if (piece.getTeam() != pieceTeam
+                            || (pass == 0 && piece.getType() != type)) {
+                        continue;
                     }
-                    currentBoard.add(pieceValue);
-                } else {
-                    currentBoard.add(0);
+                    if (piece.getType() != type) {
+                        piece.setType(type);
+                    }
+                    spare.remove(i);
+                    piece.move(x, y);
+                    board[x][y].setPiece(piece);
+                    break;
+                }
+                if (pass == 1 && !board[x][y].hasPiece()) {
+                    initPiece(x, y, pieceTeam, type);
                 }
             }
         }
-        if (threeRepetition.containsKey(currentBoard)) {
-            Integer val = threeRepetition.get(currentBoard);
-            threeRepetition.replace(currentBoard, ++val);
-        } else {
-            threeRepetition.put(currentBoard, 1);
+        pieceGroup.getChildren().removeAll(spare);
+    }
+
+    /**
+     * loadFen sets the board up from a FEN string, such as an analysis
+     * position, and starts the game over from there. The tiles and the
+     * pieces already on the board are reused rather than making a new Game.
+     *
+     * @param fen the FEN string
+     * @throws IllegalArgumentException if the FEN can't be read or the side
+     * that just moved is in check
+     * @throws IllegalStateException if the game is over
+     */
+    public void loadFen(String fen) {
+        if (!gameAlive.get()) {
+            throw new IllegalStateException("The game is over");
+        }
+        Position loaded = new Position();
+        Fen.load(loaded, fen);
+        int them = loaded.getSideToMove() ^ 1;
+        if (loaded.isSquareAttacked(loaded.kingSquare(them), them ^ 1)) {
+            throw new IllegalArgumentException("The side to move can take "
+                    + "the king: " + fen);
         }
+        position.copyFrom(loaded);
+        legalMoveCount = MoveGenerator.generate(position, legalMoves);
+        startFen = Fen.toFen(position);
+        history.clear();
+        notationHistory.clear();
+        notation.setLength(0);
+        typeOfMove = null;
+        turn = position.getSideToMove() == Position.WHITE;
+        placePieces();
     }
 
     /**
-     * Takes in a pixel location on the board for either x or y. Then converts
-     * that to a tile location.
+     * getFen gets the FEN of the position on the board.
      *
-     * @param pixel double representing some pixel location
-     * @return the tile associated with that pixel location.
+     * @return the FEN string
      */
-    private static int toBoard(double pixel) {
-        return (int) (pixel + TILE_SIZE / 2) / TILE_SIZE;
+    public String getFen() {
+        return Fen.toFen(position);
     }
 
     /**
-     * initPiece makes a Piece based off the image given the starting location
-     * the team the piece belongs to and the type of piece. Also makes the mouse
-     * listener for when the mouse is released.
+     * initPiece makes a Piece given the starting location the team the piece
+     * belongs to and the type of piece. Also makes the mouse listener for when
+     * the mouse is released.
      *
-     * @param url The location of the image for the piece.
      * @param x The starting x location for the piece
      * @param y the starting y location for the piece
      * @param team the team that the piece belongs to
      * @param type the type of piece this is.
      */
-    private void initPiece(String url, int x, int y,
-            boolean team, PieceType type) {
-        Piece piece = new Piece(url, x, y, team, type, this);
+    private void initPiece(int x, int y, boolean team, PieceType type) {
+        Piece piece = new Piece(x, y, team, type, this);
         pieceGroup.getChildren().add(piece);
         board[x][y].setPiece(piece);
         piece.setOnMouseReleased(e -> {
@@ -241,46 +359,56 @@ public abstract class Game extends Pane {
             int newY, char pp, boolean team);
 
     /**
-     * addMoveToHistory takes in a starting location and ending location for a
-     * piece then adds that move to history and notationHistory.
+     * playMove plays a packed move as if its piece had been dropped on the
+     * board by the side to move.
      *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     */
-    protected void addMoveToHistory(int oldX, int oldY, int newX, int newY) {
-        if (typeOfMove == MoveType.PAWN_PROMOTION) {
-            int pieceNum = board[newX][newY].getPiece().getType().type - 1;
-            history.add(oldX + " " + oldY + " " + newX + " " + newY + " "
-                    + pieceNum);
-        } else {
-            history.add(oldX + " " + oldY + " " + newX + " " + newY);
-        }
+     * @param move the packed move
+     * @return whether or not that was a valid move
+     */
+    protected boolean playMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        return makeMove(toX(from), toY(from), toX(to), toY(to),
+                promotionChar(move), turn);
     }
 
     /**
-     * resetDrawConditions clears out the HashMap and counter that are tracking
-     * draw conditions.
+     * replay plays a list of moves in order, for example to set a saved game
+     * back up. It stops at the first move that isn't valid.
+     *
+     * @param moves the packed moves to play
+     * @return whether or not every move was played
      */
-    protected void resetDrawConditions() {
-        threeRepetition.clear();
-        stalemateCounter = 0;
+    public boolean replay(MoveList moves) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (!gameAlive.get() || !playMove(moves.get(i))) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * checkForDraw checks the four ways you can draw in chess. If any are true
-     * then it sends an alert and ends the game.
+     * checkForDraw checks the four ways you can draw in chess, insufficient
+     * mating material, stalemate, the fifty move rule and three fold
+     * repetition. If any are true then it sends an alert and ends the game.
      */
     protected void checkForDraw() {
-        if (checkInsufficientMatingMaterial()) {
-            drawAlert(" insufficent mating material");
-        } else if (stalemate()) {
-            drawAlert(" stalemate");
-        } else if (fiftyMoveRule()) {
-            drawAlert(" 50 moves");
-        } else if (threeFoldRepetition()) {
-            drawAlert(" three fold repetition");
+        switch (Outcome.of(position, legalMoveCount)) {
+            case INSUFFICIENT_MATERIAL:
+                drawAlert(" insufficent mating material");
+                break;
+            case STALEMATE:
+                drawAlert(" stalemate");
+                break;
+            case FIFTY_MOVES:
+                drawAlert(" 50 moves");
+                break;
+            case REPETITION:
+                drawAlert(" three fold repetition");
+                break;
+            default:
+                break;
         }
     }
 
@@ -300,92 +428,6 @@ public abstract class Game extends Pane {
         gameAlive.setValue(false);
     }
 
-    /**
-     * stalemate checks to see if the game is drawn by stalemate. Stalemate
-     * happens when no piece is able to move and the king is not in check.
-     *
-     * @return boolean representing whether the game has been drawn
-     */
-    private boolean stalemate() {
-        if (inCheck(kingLoc.getKingX(turn), kingLoc.getKingY(turn))) {
-            return false;
-        }
-        for (int pieceX = 0; pieceX < WIDTH; pieceX++) {
-            for (int pieceY = 0; pieceY < HEIGHT; pieceY++) {
-                if (board[pieceX][pieceY].hasPiece()
-                        && turn == board[pieceX][pieceY].getPiece().getTeam()) {
-                    for (int locX = 0; locX < WIDTH; locX++) {
-                        for (int locY = 0; locY < HEIGHT; locY++) {
-                            if (pieceCanMove(pieceX, pieceY, locX, locY)) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * threeFoldRepetition goes through the hashMap of boards and checks to see
-     * if any contain the value of three if they do then the game is drawn
-     *
-     * @return whether or not the game has been drawn
-     */
-    private boolean threeFoldRepetition() {
-        return threeRepetition.values().stream().anyMatch((val) -> (val > 2));
-    }
-
-    /**
-     * fiftyMoveRule checks to see if the game has been drawn from the fifty
-     * move rule. A move in chess is considered both white and black moving a
-     * piece. I am incrementing the counter every time the piece is moved. so I
-     * need to check to see if it is greater than 100 instead of 50.
-     *
-     * @return whether or not the game has been drawn
-     */
-    private boolean fiftyMoveRule() {
-        if (stalemateCounter > 100) {
-            return true;
-        } else {
-            stalemateCounter++;
-        }
-        return false;
-    }
-
-    /**
-     * checkInsufficientMatingMaterial checks to see if both sides don't have
-     * the necessary material to mate the other side. Insufficient mating
-     * material happens when neither side has a pawn, rook, queen, or less than
-     * two minor pieces.
-     *
-     * @return whether or not the game has been drawn
-     */
-    private boolean checkInsufficientMatingMaterial() {
-        ArrayList<PieceType> whitePieces = new ArrayList<>();
-        ArrayList<PieceType> blackPieces = new ArrayList<>();
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                if (board[x][y].hasPiece()) {
-                    Piece p = board[x][y].getPiece();
-                    if (p.getType() == PAWN
-                            || p.getType() == QUEEN
-                            || p.getType() == ROOK) {
-                        return false;
-                    }
-
-                    if (p.getTeam()) {
-                        whitePieces.add(p.getType());
-                    } else {
-                        blackPieces.add(p.getType());
-                    }
-                }
-            }
-        }
-        return !(whitePieces.size() > 2 || blackPieces.size() > 2);
-    }
-
     /**
      * pawnPromotion takes in the pawns location and maybe the piece it is
      * promoting to and promotes the pawn. If a piece is not specified for the
@@ -398,32 +440,23 @@ public abstract class Game extends Pane {
      */
     protected void pawnPromotion(int x, int y, char pawnPromotion) {
         Piece piece = board[x][y].getPiece();
-        String color = turn ? "white" : "black";
         if (pawnPromotion != ' ') {
             switch (pawnPromotion) {
                 case 'Q':
                 case 'q':
                     piece.setType(QUEEN);
-                    piece.setImage(
-                            new Image("/Images/queen_" + color + ".png"));
                     break;
                 case 'N':
                 case 'n':
                     piece.setType(KNIGHT);
-                    piece.setImage(
-                            new Image("/Images/knight_" + color + ".png"));
                     break;
                 case 'B':
                 case 'b':
                     piece.setType(BISHOP);
-                    piece.setImage(
-                            new Image("/Images/bishop_" + color + ".png"));
                     break;
                 case 'R':
                 case 'r':
                     piece.setType(ROOK);
-                    piece.setImage(
-                            new Image("/Images/rook_" + color + ".png"));
                     break;
                 default:
                     break;
@@ -448,108 +481,35 @@ public abstract class Game extends Pane {
         Optional<ButtonType> result = alert.showAndWait();
         if (result.get() == rook) {
             piece.setType(ROOK);
-            piece.setImage(new Image("/Images/rook_" + color + ".png"));
         } else if (result.get() == bishop) {
             piece.setType(BISHOP);
-            piece.setImage(new Image("/Images/bishop_" + color + ".png"));
         } else if (result.get() == knight) {
             piece.setType(KNIGHT);
-            piece.setImage(new Image("/Images/knight_" + color + ".png"));
         } else {
             piece.setType(QUEEN);
-            piece.setImage(new Image("/Images/queen_" + color + ".png"));
         }
         
         typeOfMove = MoveType.PAWN_PROMOTION;
     }
 
     /**
-     * canMove takes in a pieces starting location and a location it is trying
-     * to move to. Checks to see if that piece is capable of moving there.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not the piece can move to that location
-     */
-    private boolean canMove(int oldX, int oldY, int newX, int newY) {
-        Piece start = board[oldX][oldY].getPiece();
-        Piece end = board[newX][newY].getPiece();
-
-        //Make sure the start piece exists and cant take own pieces
-        if (start == null || start.getTeam() != turn
-                || (end != null && start.getTeam() == end.getTeam())) {
-            return false;
-        }
-
-        switch (start.getType()) {
-            case PAWN:
-                return pawnMovementCheck(oldX, oldY, newX, newY);
-            case ROOK:
-                return horizontalMovementCheck(oldX, oldY, newX, newY);
-            case KNIGHT:
-                return knightMovementCheck(oldX, oldY, newX, newY);
-            case BISHOP:
-                return diagonalMovementCheck(oldX, oldY, newX, newY);
-            case QUEEN:
-                return diagonalMovementCheck(oldX, oldY, newX, newY)
-                        || horizontalMovementCheck(oldX, oldY, newX, newY);
-            case KING:
-                return kingMovementCheck(oldX, oldY, newX, newY);
-            default:
-                return false;
-        }
-    }
-
-    /**
-     * checkMate checks to see if the king has been checkMated. This happens in
-     * two steps first it checks to see if the king can move anywhere. Then it
-     * checks to see if any piece is capable of blocking the check or taking the
-     * piece that is attacking.
+     * checkMate checks to see if the king has been checkMated. This happens
+     * when the king is in check and the side to move has no legal moves.
      *
-     * @return whether or not the king has been checkmated.
+     * @return whether or not the king has been checkMated.
      */
     protected boolean checkMate() {
-        int kingX = kingLoc.getKingX(turn);
-        int kingY = kingLoc.getKingY(turn);
-
-        //can king move
-        if (pieceCanMove(kingX, kingY, kingX, kingY + 1)
-                || pieceCanMove(kingX, kingY, kingX, kingY - 1)
-                || pieceCanMove(kingX, kingY, kingX + 1, kingY + 1)
-                || pieceCanMove(kingX, kingY, kingX + 1, kingY - 1)
-                || pieceCanMove(kingX, kingY, kingX + 1, kingY)
-                || pieceCanMove(kingX, kingY, kingX - 1, kingY + 1)
-                || pieceCanMove(kingX, kingY, kingX - 1, kingY - 1)
-                || pieceCanMove(kingX, kingY, kingX - 1, kingY)) {
+        if (legalMoveCount > 0 || !inCheck()) {
             return false;
         }
-
-        //can piece block or take
-        for (int pieceX = 0; pieceX < WIDTH; pieceX++) {
-            for (int pieceY = 0; pieceY < HEIGHT; pieceY++) {
-                if (board[pieceX][pieceY].hasPiece()
-                        && turn == board[pieceX][pieceY].getPiece().getTeam()) {
-                    for (int locX = 0; locX < WIDTH; locX++) {
-                        for (int locY = 0; locY < HEIGHT; locY++) {
-                            if (pieceCanMove(pieceX, pieceY, locX, locY)) {
-                                return false;
-                            }
-                        }
-                    }
-                }
-            }
-        }
         typeOfMove = MoveType.CHECK_MATE;
         return true;
     }
 
     /**
-     * pieceCanMove adds in an extra layer of checks for the piece canMove
-     * method. It first checks that the locations given are valid. then makes
-     * sure that the piece exists. Then it checks to see if that wont cause an
-     * issue with putting the king in check.
+     * pieceCanMove checks that the locations given are valid and then looks
+     * for a legal move of the current turn between them. Promotions match
+     * whichever piece the pawn ends up promoting to.
      *
      * @param oldX starting x for the move
      * @param oldY starting y for the move
@@ -558,348 +518,113 @@ public abstract class Game extends Pane {
      * @return whether or not the piece can move.
      */
     protected boolean pieceCanMove(int oldX, int oldY, int newX, int newY) {
-        if (newX < 0 || newX > 7 || newY < 0 || newY > 7
-                || !board[oldX][oldY].hasPiece()) {
+        if (newX < 0 || newX > 7 || newY < 0 || newY > 7) {
             return false;
         }
-        return canMove(oldX, oldY, newX, newY)
-                && !checkPieceBlock(oldX, oldY, newX, newY);
-    }
-
-    /**
-     * inCheck takes in the current king's location then checks to see if any
-     * piece on the opposing team can move to that location. If they can then
-     * the king is in check
-     *
-     * @param kingX x location of the king
-     * @param kingY y location of the king
-     * @return whether or not the king is in check
-     */
-    protected boolean inCheck(int kingX, int kingY) {
-        changeTurn();
-        for (int x = 0; x < WIDTH; x++) {
-            for (int y = 0; y < HEIGHT; y++) {
-                if (canMove(x, y, kingX, kingY)) {
-                    changeTurn();
-                    return true;
-                }
+        int from = toSquare(oldX, oldY);
+        int to = toSquare(newX, newY);
+        for (int i = 0; i < legalMoveCount; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to) {
+                return true;
             }
         }
-        changeTurn();
         return false;
     }
 
     /**
-     * checkPieceBlock takes in a starting and ending location for a piece then
-     * moves that piece to the location. Records whether or not the king is in
-     * check, moves the piece back to the starting location and returns the
-     * result.
+     * inCheck checks to see if any piece on the opposing team attacks the
+     * king of the current turn.
      *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not this move will leave the king in check.
+     * @return whether or not the king is in check
      */
-    private boolean checkPieceBlock(int oldX, int oldY, int newX, int newY) {
-        //Move piece from old xy to new xy
-        Piece piece = board[oldX][oldY].getPiece();
-        Piece locationPiece = board[newX][newY].getPiece();
-        board[newX][newY].setPiece(piece);
-        if (piece.getType() == KING) {
-            kingLoc.setKingLocation(turn, newX, newY);
-        }
-        board[oldX][oldY].setPiece(null);
-
-        int kingX = kingLoc.getKingX(turn);
-        int kingY = kingLoc.getKingY(turn);
-
-        boolean inCheck = inCheck(kingX, kingY);
-
-        //move the piece back
-        board[newX][newY].setPiece(locationPiece);
-        board[oldX][oldY].setPiece(piece);
-        if (piece.getType() == KING) {
-            kingLoc.setKingLocation(turn, oldX, oldY);
-        }
-
-        return inCheck;
+    protected boolean inCheck() {
+        return position.inCheck();
     }
 
     /**
-     * kingMovementCheck takes in a starting location and ending location for a
-     * king piece and checks to see if a king would be able to make that move.
+     * movePieceOnBoard moves the Piece nodes of a move that has already been
+     * validated. A castling king also brings its rook along and an en passant
+     * capture takes the pawn off of its tile. typeOfMove is updated to match
+     * the move.
      *
      * @param oldX starting x for the move
      * @param oldY starting y for the move
      * @param newX ending x for the move
      * @param newY ending y for the move
-     * @return whether or not this is a valid king move
-     */
-    private boolean kingMovementCheck(int oldX, int oldY, int newX, int newY) {
-        //Castling
-        if (Math.abs(oldX - newX) == 2 && Math.abs(oldY - newY) == 0) {
-            //Make sure the king has not moved and that it is not in check
-            if (board[oldX][oldY].getPiece().hasMoved()
-                    || inCheck(oldX, oldY)) {
-                return false;
-            }
-            //King side
-            if (oldX < newX) {
-                //Check to see if there is a piece in the way.
-                if (board[oldX + 1][oldY].hasPiece()
-                        || board[oldX + 2][oldY].hasPiece()) {
-                    return false;
-                }
-
-                //check to make sure the king wont go through inCheck
-                if (checkPieceBlock(oldX, oldY, oldX + 1, oldY)
-                        || checkPieceBlock(oldX, oldY, oldX + 2, oldY)) {
-                    return false;
-                }
-
-                //Make sure the piece exists
-                if (board[oldX + 3][oldY].hasPiece()) {
-                    Piece rook = board[oldX + 3][oldY].getPiece();
-                    if (rook.getType() == ROOK && !rook.hasMoved()) {
-                        board[newX - 1][newY].setPiece(rook);
-                        board[oldX + 3][oldY].setPiece(null);
-                        rook.move(newX - 1, newY);
-                        typeOfMove = MoveType.KING_CASTLE;
-                        return true;
-                    }
-                }
-                //Queen side
-            } else {
-                //Check to see if there is a piece in the way.
-                if (board[oldX - 1][oldY].hasPiece()
-                        || board[oldX - 2][oldY].hasPiece()) {
-                    return false;
-                }
-
-                //check to make sure the king wont go through inCheck
-                if (checkPieceBlock(oldX, oldY, oldX - 1, oldY)
-                        || checkPieceBlock(oldX, oldY, oldX - 2, oldY)) {
-                    return false;
-                }
-
-                //Make sure the piece exists
-                if (board[oldX - 4][oldY].hasPiece()) {
-                    Piece rook = board[oldX - 4][oldY].getPiece();
-
-                    //Make sure the piece is a rook then make sure it has
-                    //not moved
-                    if (rook.getType() == ROOK && !rook.hasMoved()) {
-                        board[newX + 1][newY].setPiece(rook);
-                        board[oldX - 4][oldY].setPiece(null);
-                        rook.move(newX + 1, newY);
-                        typeOfMove = MoveType.QUEEN_CASTLE;
-                        return true;
-                    }
-                }
-            }
-        }
-        return (Math.abs(oldX - newX) < 2 && Math.abs(oldY - newY) < 2);
-    }
-
-    /**
-     * pawnMovementCheck takes in a starting location and a ending location and
-     * then checks to see if this is a valid move for a pawn to make.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not this is a valid pawn movement
+     * @return the piece that was captured or null
      */
-    private boolean pawnMovementCheck(int oldX, int oldY, int newX, int newY) {
-        boolean pieceTeam = board[oldX][oldY].getPiece().getTeam();
-        //Make sure the pawns are moving in the right direction
-        if ((pieceTeam && oldY <= newY) || (!pieceTeam && oldY >= newY)) {
-            return false;
-        }
-        //Movement
-        if (newX == oldX) {
-            //Can't take a piece from normal movement
-            if (board[newX][newY].hasPiece()) {
-                return false;
-            }
-            //Normal one space move forward
-            if (Math.abs(newY - oldY) == 1) {
-                return true;
-            }
-            //Double move forward if on starting line
-            if (Math.abs(newY - oldY) == 2) {
-                if ((pieceTeam && !board[newX][newY + 1].hasPiece()
-                        && oldY == 6) || (!pieceTeam
-                        && !board[newX][newY - 1].hasPiece() && oldY == 1)) {
-                    return true;
-                }
-            }
-        }
-        //Taking a Piece
-        if (Math.abs(newX - oldX) == 1 && board[newX][newY].hasPiece()
-                && (Math.abs(newY - oldY) == 1)) {
-            return true;
+    protected Piece movePieceOnBoard(int oldX, int oldY, int newX, int newY) {
+        Piece piece = board[oldX][oldY].getPiece();
+        Piece captured = board[newX][newY].getPiece();
+        if (captured != null) {
+            typeOfMove = MoveType.CAPTURE;
+        } else if (piece.getType() == PAWN && oldX != newX) {
+            captured = board[newX][oldY].getPiece();
+            board[newX][oldY].setPiece(null);
+            typeOfMove = MoveType.EN_PASSANT;
+        } else if (piece.getType() == KING && Math.abs(oldX - newX) == 2) {
+            int rookX = oldX < newX ? WIDTH - 1 : 0;
+            int rookNewX = oldX < newX ? newX - 1 : newX + 1;
+            Piece rook = board[rookX][oldY].getPiece();
+            board[rookNewX][newY].setPiece(rook);
+            board[rookX][oldY].setPiece(null);
+            rook.move(rookNewX, newY);
+            typeOfMove = oldX < newX ? MoveType.KING_CASTLE
+                    : MoveType.QUEEN_CASTLE;
         }
-        return enpassantCheck(oldX, oldY, newX, newY);
+        board[newX][newY].setPiece(piece);
+        board[oldX][oldY].setPiece(null);
+        return captured;
     }
 
     /**
-     * enpassantCheck takes in a starting location and ending location and check
-     * to see if this is a valid en passant move.
+     * commitMove plays a move on the position once the pieces have been moved
+     * on the board, adds it to the history and generates the legal moves of
+     * the next turn. If a pawn was promoted the type of the promoted piece is
+     * taken from its Piece.
      *
      * @param oldX starting x for the move
      * @param oldY starting y for the move
      * @param newX ending x for the move
      * @param newY ending y for the move
-     * @return whether or not this is a valid en passant move.
      */
-    private boolean enpassantCheck(int oldX, int oldY, int newX, int newY) {
-        //can enpassant if the last move was not a double pawn move.
-        if (doubleMovePawn == null) {
-            return false;
-        }
-        int otherPawnX = toBoard(doubleMovePawn.getOldX());
-        int otherPawnY = toBoard(doubleMovePawn.getOldY());
-
-        //check that the pawn moved in the appropriate direction only one square
-        if (Math.abs(oldX - otherPawnX) == 1 && newX == otherPawnX) {
-            //Check that the pawn started nex to the other pawn and that it
-            //moved forward only one square.
-            if (oldY == otherPawnY && Math.abs(newY - otherPawnY) == 1) {
-                Piece killedPiece = board[otherPawnX][otherPawnY].getPiece();
-
-                Platform.runLater(() -> {
-                    pieceGroup.getChildren().remove(killedPiece);
-                });
-
-                //pieceGroup.getChildren().remove(killedPiece);
-                board[otherPawnX][otherPawnY].setPiece(null);
-                return true;
+    protected void commitMove(int oldX, int oldY, int newX, int newY) {
+        int from = toSquare(oldX, oldY);
+        int to = toSquare(newX, newY);
+        int promotion = Position.typeOf(
+                board[newX][newY].getPiece().getType().type);
+        for (int i = 0; i < legalMoveCount; i++) {
+            int move = legalMoves[i];
+            if (Move.from(move) == from && Move.to(move) == to
+                    && (!Move.isPromotion(move)
+                    || Move.promotion(move) == promotion)) {
+                notation.setLength(0);
+                San.appendMove(notation, position, move, notationMoves);
+                position.makeMove(move);
+                history.add(move);
+                break;
             }
         }
-
-        return false;
+        legalMoveCount = MoveGenerator.generate(position, legalMoves);
     }
 
     /**
-     * knightMovementCheck takes in a starting location and ending location then
-     * checks to see if this is a valid movement for a knight.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not this is a valid movement for a knight
-     */
-    private boolean knightMovementCheck(int oldX, int oldY, int newX,
-            int newY) {
-        return (((Math.abs(oldX - newX) == 1)
-                && (Math.abs(oldY - newY) == 2))
-                || ((Math.abs(oldX - newX) == 2)
-                && (Math.abs(oldY - newY) == 1)));
-    }
-
-    /**
-     * horizontalMovementCheck takes in a starting location and an ending
-     * location, then checks to see if this is a valid movement for either a
-     * rook or a queen.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not this is a valid straight line movement.
+     * recordNotation adds the notation of the move that was just made to
+     * notationHistory. It is called once the move is finished, when
+     * typeOfMove is CHECK or CHECK_MATE if the move gave one.
      */
-    private boolean horizontalMovementCheck(int oldX, int oldY,
-            int newX, int newY) {
-        return ((oldX != newX && oldY == newY)
-                || (oldY != newY && oldX == newX))
-                && horizontalCheckForPieces(oldX, oldY, newX, newY);
-    }
-
-    /**
-     * horizontalCheckForPieces takes in a starting location and ending location
-     * and checks to see if there are no pieces in between them. Only for
-     * straight line movements.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return true if there are no pieces in the way
-     */
-    private boolean horizontalCheckForPieces(int oldX, int oldY,
-            int newX, int newY) {
-        if (oldX == newX) {
-            //Movement in the Y direction
-            int minY = Math.min(newY, oldY);
-            int maxY = Math.max(newY, oldY);
-            for (int i = minY + 1; i < maxY; i++) {
-                if (board[oldX][i].hasPiece()) {
-                    return false;
-                }
-            }
-        } else {
-            //Movement in the X direction
-            int minX = Math.min(newX, oldX);
-            int maxX = Math.max(oldX, newX);
-            for (int i = minX + 1; i < maxX; i++) {
-                if (board[i][oldY].hasPiece()) {
-                    return false;
-                }
-            }
+    protected void recordNotation() {
+        if (notation.length() == 0) {
+            return;
         }
-        return true;
-    }
-
-    /**
-     * diagonalMovementCheck takes in a starting location and ending location,
-     * then checks if this is a valid diagonal movement for a piece.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return whether or not this is a valid diagonal movement
-     */
-    private boolean diagonalMovementCheck(int oldX, int oldY,
-            int newX, int newY) {
-        return (Math.abs(oldX - newX) == Math.abs(oldY - newY))
-                && diagonalCheckForPieces(oldX, oldY, newX, newY);
-    }
-
-    /**
-     * diagonalCheckForPieces checks to see if there are any pieces in the way
-     * for a diagonal movement.
-     *
-     * @param oldX starting x for the move
-     * @param oldY starting y for the move
-     * @param newX ending x for the move
-     * @param newY ending y for the move
-     * @return true if there are no pieces in the way of the movement
-     */
-    private boolean diagonalCheckForPieces(int oldX, int oldY,
-            int newX, int newY) {
-        int minX = Math.min(oldX, newX);
-        int minY = Math.min(oldY, newY);
-        int maxX = Math.max(oldX, newX);
-        int maxY = Math.max(oldY, newY);
-        if (oldY - oldX == newY - newX) {
-            for (int x = minX + 1, y = minY + 1; x < maxX; x++, y++) {
-                if (board[x][y].hasPiece()) {
-                    return false;
-                }
-            }
-        } else {
-            for (int x = minX + 1, y = maxY - 1; x < maxX; x++, y--) {
-                if (board[x][y].hasPiece()) {
-                    return false;
-                }
-            }
+        if (typeOfMove == MoveType.CHECK) {
+            notation.append('+');
+        } else if (typeOfMove == MoveType.CHECK_MATE) {
+            notation.append('#');
         }
-        return true;
+        notationHistory.add(notation.toString());
+        notation.setLength(0);
     }
 
     /**
@@ -941,8 +666,76 @@ public abstract class Game extends Pane {
      *
      * @return game's history
      */
-    public ArrayList<String> getHistory() {
+    public MoveList getHistory() {
         return history;
     }
 
+    /**
+     * getLastMove gets the move that was played last.
+     *
+     * @return the packed move or Move.NONE if no move has been played
+     */
+    public int getLastMove() {
+        return history.isEmpty() ? Move.NONE
+                : history.get(history.size() - 1);
+    }
+
+    /**
+     * getNotationHistory gets the moves of the game in algebraic notation.
+     *
+     * @return the notation of every move played
+     */
+    public List<String> getNotationHistory() {
+        return notationHistory;
+    }
+
+    /**
+     * getResult gets the result of the game the way PGN writes it.
+     *
+     * @return 1-0 or 0-1 after a checkmate, 1/2-1/2 after a draw and *
+     * while the game is still going
+     */
+    public String getResult() {
+        Outcome outcome = Outcome.of(position, legalMoveCount);
+        if (outcome == Outcome.CHECKMATE) {
+            return position.getSideToMove() == Position.WHITE ? "0-1" : "1-0";
+        } else if (outcome.isDraw()) {
+            return "1/2-1/2";
+        }
+        return "*";
+    }
+
+    /**
+     * writePgn writes the game to a PGN file with the notation in
+     * notationHistory.
+     *
+     * @param writer the PGN file
+     * @param white the name of the white player
+     * @param black the name of the black player
+     * @throws IOException if the file can't be written
+     */
+    public void writePgn(PgnWriter writer, String white, String black)
+            throws IOException {
+        String result = getResult();
+        writer.tag("Event", "Casual game");
+        writer.tag("Site", "?");
+        writer.tag("Date", LocalDate.now().format(
+                DateTimeFormatter.ofPattern("yyyy.MM.dd")));
+        writer.tag("Round", "-");
+        writer.tag("White", white);
+        writer.tag("Black", black);
+        writer.tag("Result", result);
+        Position start = new Position();
+        if (!startFen.equals(Fen.START)) {
+            writer.tag("SetUp", "1");
+            writer.tag("FEN", startFen);
+            Fen.load(start, startFen);
+        }
+        writer.startMoves(start);
+        for (int i = 0; i < history.size(); i++) {
+            writer.move(history.get(i), notationHistory.get(i));
+        }
+        writer.endGame(result);
+    }
+
 }
@@ -63,13 +63,40 @@ public class MultiplayerGame extends Game {
     @Override
     public boolean makeMove(int oldX, int oldY, int newX, int newY, char pp, boolean team) {
         if (checkMove(oldX, oldY, newX, newY, pp, team)) {
-            String message = networking.Messages.move(oldX, oldY, newX, newY, pawnPro);
+            String message = networking.Messages.move(getLastMove());
             connection.sendOnSocket(message);
             return true;
         }
         return false;
     }
 
+    /**
+     * Checks to see if a packed move from the opponent is valid and plays it
+     * without sending it back.
+     *
+     * @param move The packed move.
+     * @param team Team of the player that is moving.
+     * @return Whether or not that was a valid move.
+     */
+    public boolean checkMove(int move, boolean team) {
+        int from = engine.Move.from(move);
+        int to = engine.Move.to(move);
+        return checkMove(toX(from), toY(from), toX(to), toY(to),
+                promotionChar(move), team);
+    }
+
+    /**
+     * Plays a packed move without sending it to the opponent, so replaying a
+     * game doesn't repeat its moves over the socket.
+     *
+     * @param move The packed move.
+     * @return Whether or not that was a valid move.
+     */
+    @Override
+    protected boolean playMove(int move) {
+        return checkMove(move, getTurn());
+    }
+
     /**
      * Checks to see if a given move is valid taking in parameters of what piece
      * is trying to be moved and what team the player is playing. Returns
@@ -103,47 +130,27 @@ public class MultiplayerGame extends Game {
         }
 
         //Piece to Kill
-        if (board[newX][newY].hasPiece()) {
-            resetDrawConditions();
-            Piece killedPiece = board[newX][newY].getPiece();
-
+        Piece killedPiece = movePieceOnBoard(oldX, oldY, newX, newY);
+        if (killedPiece != null) {
             Platform.runLater(() -> {
                 pieceGroup.getChildren().remove(killedPiece);
             });
-
-            typeOfMove = MoveType.CAPTURE;
         }
-        board[newX][newY].setPiece(piece);
-        board[oldX][oldY].setPiece(null);
-
-        switch (piece.getType()) {
-            case PAWN:
-                resetDrawConditions();
-                if (newY == 0 || newY == 7) {
-                    runAndWait(() -> this.pawnPromotion(newX, newY, pawnPro));
-                    pawnPro = this.board[newX][newY].getPiece().getType().type;
-                } else if (Math.abs(newY - oldY) == 2) {
-                    doubleMovePawn = piece;
-                } else {
-                    doubleMovePawn = null;
-                }
-                break;
-            case KING:
-                kingLoc.setKingLocation(getTurn(), newX, newY);
-            default:
-                doubleMovePawn = null;
+
+        if (piece.getType() == PieceType.PAWN && (newY == 0 || newY == 7)) {
+            runAndWait(() -> this.pawnPromotion(newX, newY, pawnPro));
         }
+        commitMove(oldX, oldY, newX, newY);
 
-        addBoardToMap();
         piece.move(newX, newY);
         changeTurn();
-        if (inCheck(kingLoc.getKingX(getTurn()), kingLoc.getKingY(getTurn()))) {
+        if (inCheck()) {
             typeOfMove = MoveType.CHECK;
             if (checkMate()) {
-                Platform.runLater(() -> this.endGame(oldX, oldY, newX, newY));
+                Platform.runLater(() -> this.endGame());
             }
         }
-        addMoveToHistory(oldX, oldY, newX, newY);
+        recordNotation();
         typeOfMove = null;
         checkForDraw();
         return true;
@@ -183,11 +190,10 @@ public class MultiplayerGame extends Game {
         }
     }
 
-    private void endGame(int oldX, int oldY, int newX, int newY) {
+    private void endGame() {
         System.out.println("We are ending the game");
 
         connection.endGame(getTurn() != getTeam());
-        addMoveToHistory(oldX, oldY, newX, newY);
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Game Over");
         Window window = this.getScene().getWindow();
@@ -18,18 +18,17 @@ public class Piece extends ImageView {
     private PieceType type;
 
     /**
-     * Piece takes in a string location for it's image, its x,y location, the
-     * piece's team, and the type of piece.
+     * Piece takes in its x,y location, the piece's team, and the type of
+     * piece. Its image comes from PieceImages.
      *
-     * @param url the string location of the piece
      * @param x the x coordinate for the piece
      * @param y the y coordinate for the piece
      * @param team the piece's team
      * @param type the piece's type
      * @param game
      */
-    public Piece(String url, int x, int y, boolean team, PieceType type, Game game) {
-        super(url);
+    public Piece(int x, int y, boolean team, PieceType type, Game game) {
+        super(PieceImages.get(type, team));
         move(x, y);
         moved = false;
         this.team = team;
@@ -115,12 +114,13 @@ public class Piece extends ImageView {
     }
 
     /**
-     * setType sets the piece type
+     * setType sets the piece type and shows the image of the new type
      *
      * @param type the new piece type
      */
     public void setType(PieceType type) {
         this.type = type;
+        setImage(PieceImages.get(type, team));
     }
 
     /**
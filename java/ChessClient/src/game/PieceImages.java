@@ -0,0 +1,60 @@
+package game;
+
+import javafx.scene.image.Image;
+
+/**
+ * PieceImages holds the image of every piece of both teams. All twelve are
+ * decoded together the first time any is asked for, then shared by every
+ * Piece of every game, since one Image can be shown by any number of
+ * ImageViews. New games, promotions and positions loaded from a FEN only
+ * point their pieces at an image that is already decoded.
+ *
+ * @author Ben Clark
+ */
+public final class PieceImages {
+
+    private static final Image[] IMAGES = load();
+
+    private PieceImages() {
+
+    }
+
+    /**
+     * get gets the image of a piece.
+     *
+     * @param type the type of piece
+     * @param team the team the piece belongs to, true for white
+     * @return the image
+     */
+    public static Image get(PieceType type, boolean team) {
+        return IMAGES[index(type, team)];
+    }
+
+    /**
+     * load decodes the image of every piece.
+     */
+    private static Image[] load() {
+        PieceType[] types = PieceType.values();
+        Image[] images = new Image[types.length * 2];
+        for (PieceType type : types) {
+            images[index(type, true)] = new Image(url(type, true));
+            images[index(type, false)] = new Image(url(type, false));
+        }
+        return images;
+    }
+
+    /**
+     * index gets where the image of a piece is kept.
+     */
+    private static int index(PieceType type, boolean team) {
+        return type.ordinal() * 2 + (team ? 0 : 1);
+    }
+
+    /**
+     * url gets the location of the image of a piece.
+     */
+    private static String url(PieceType type, boolean team) {
+        return "/Images/" + type.name().toLowerCase() + "_"
+                + (team ? "white" : "black") + ".png";
+    }
+}
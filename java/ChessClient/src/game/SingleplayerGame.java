@@ -1,16 +1,121 @@
 package game;
 
+import engine.Book;
+import engine.Move;
+import engine.Position;
+import engine.ParallelSearch;
+import engine.Search;
+import engine.TranspositionTable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
 import javafx.stage.Window;
 
 /**
  * SingleplayerGame extends Game by adding functionality to both the makeMove
- * and changeTurn methods.
+ * and changeTurn methods. It is either played by two people taking turns on
+ * the same board or against the computer, which plays black. The computer
+ * plays from the opening book while it can, and either player can ask the
+ * book for a hint.
  *
  * @author Ben Clark
  */
 public class SingleplayerGame extends Game {
 
+    /**
+     * The team the computer plays.
+     */
+    private static final boolean COMPUTER_TEAM = false;
+
+    /**
+     * How long the computer thinks about each move in milliseconds.
+     */
+    private static final long COMPUTER_MILLIS = 1000;
+
+    /**
+     * The computer searches on every core but one, which is left for the
+     * JavaFX application thread.
+     */
+    private static final int COMPUTER_THREADS = Math.max(1,
+            Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * The opening book, opened the first time a game needs it and shared by
+     * every game after that. It is null if there is no book file.
+     */
+    private static Book book;
+    private static boolean bookOpened;
+
+    private final boolean vsComputer;
+    private final ParallelSearch search;
+
+    /**
+     * The thread that waits on the search for the computer's moves, one for
+     * the whole game, and the move it is working on or null.
+     */
+    private final ExecutorService computer;
+    private Future<?> thinking;
+
+    /**
+     * How many times the position has been replaced by loadFen. A computer
+     * move is only played if no position was loaded since it was picked.
+     */
+    private int generation;
+    private final Random bookRandom = new Random();
+
+    /**
+     * The from and to squares of the hint being shown, or -1.
+     */
+    private int hintFrom = -1;
+    private int hintTo = -1;
+
+    /**
+     * Whether or not the move being made comes from the computer.
+     */
+    private boolean computerMoving;
+
+    /**
+     * Default constructor for a game between two people on the same board.
+     */
+    public SingleplayerGame() {
+        this(false);
+    }
+
+    /**
+     * Constructor that takes in whether or not the computer plays black.
+     *
+     * @param vsComputer Whether or not to play against the computer.
+     */
+    public SingleplayerGame(boolean vsComputer) {
+        super();
+        this.vsComputer = vsComputer;
+        this.search = vsComputer ? new ParallelSearch(COMPUTER_THREADS,
+                new TranspositionTable(64)) : null;
+        this.computer = vsComputer ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "computer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        //Let the search threads go once the game is over
+        if (vsComputer) {
+            gameAlive.addListener((observable, wasAlive, alive) -> {
+                if (!alive) {
+                    if (thinking != null) {
+                        thinking.cancel(false);
+                    }
+                    search.shutdown();
+                    computer.shutdown();
+                }
+            });
+        }
+    }
+
     /**
      * Makes move takes in two positions, a character of what piece to promote
      * to if it is a pawn move and the team of the movement.
@@ -32,6 +137,12 @@ public class SingleplayerGame extends Game {
 
         Piece piece = board[oldX][oldY].getPiece();
 
+        //The computer's pieces can't be moved while it is thinking
+        if (vsComputer && getTurn() == COMPUTER_TEAM && !computerMoving) {
+            piece.abortMove();
+            return false;
+        }
+
         //is that a valied move?
         if (!pieceCanMove(oldX, oldY, newX, newY)) {
             piece.abortMove();
@@ -41,42 +152,24 @@ public class SingleplayerGame extends Game {
         if (typeOfMove == null) {
             typeOfMove = MoveType.MOVE;
         }
+        hideHint();
 
         //Piece to Kill
-        if (board[newX][newY].hasPiece()) {
-            resetDrawConditions();
-            Piece killedPiece = board[newX][newY].getPiece();
+        Piece killedPiece = movePieceOnBoard(oldX, oldY, newX, newY);
+        if (killedPiece != null) {
             pieceGroup.getChildren().remove(killedPiece);
-            typeOfMove = MoveType.CAPTURE;
         }
-        board[newX][newY].setPiece(piece);
-        board[oldX][oldY].setPiece(null);
-
-        switch (piece.getType()) {
-            case PAWN:
-                resetDrawConditions();
-                if (newY == 0 || newY == 7) {
 
-                    pawnPromotion(newX, newY, new Character(pp));
-                } else if (Math.abs(newY - oldY) == 2) {
-                    doubleMovePawn = piece;
-                } else {
-                    doubleMovePawn = null;
-                }
-                break;
-            case KING:
-                kingLoc.setKingLocation(getTurn(), newX, newY);
-            default:
-                doubleMovePawn = null;
+        if (piece.getType() == PieceType.PAWN && (newY == 0 || newY == 7)) {
+            pawnPromotion(newX, newY, new Character(pp));
         }
+        commitMove(oldX, oldY, newX, newY);
 
-        addBoardToMap();
         piece.move(newX, newY);
         changeTurn();
-        if (inCheck(kingLoc.getKingX(getTurn()), kingLoc.getKingY(getTurn()))) {
+        if (inCheck()) {
             typeOfMove = MoveType.CHECK;
             if (checkMate()) {
-                addMoveToHistory(oldX, oldY, newX, newY);
                 Alert mes = new Alert(Alert.AlertType.CONFIRMATION);
                 mes.setTitle("Game Over");
                 Window window = this.getScene().getWindow();
@@ -91,37 +184,173 @@ public class SingleplayerGame extends Game {
                 gameAlive.setValue(false);
             }
         }
-        addMoveToHistory(oldX, oldY, newX, newY);
+        recordNotation();
         typeOfMove = null;
         checkForDraw();
+        if (vsComputer && gameAlive.get() && getTurn() == COMPUTER_TEAM) {
+            computerMove();
+        }
         return true;
     }
 
+    /**
+     * computerMove searches for the computer's move on the search threads
+     * so the board stays responsive, then plays it on the JavaFX thread. The
+     * search runs on its own copy of the position.
+     */
+    private void computerMove() {
+        Book openingBook = getBook();
+        int bookMove = openingBook == null ? Move.NONE
+                : openingBook.pick(position, bookRandom);
+        int picked = generation;
+        if (bookMove != Move.NONE) {
+            //Let the player's move finish before answering it
+            Platform.runLater(() -> {
+                if (gameAlive.get() && generation == picked) {
+                    computerMoving = true;
+                    playMove(bookMove);
+                    computerMoving = false;
+                }
+            });
+            return;
+        }
+        Position root = new Position();
+        root.copyFrom(position);
+        thinking = computer.submit(() -> {
+            int move = search.search(root, Search.MAX_PLY, 0,
+                    COMPUTER_MILLIS);
+            Platform.runLater(() -> {
+                if (gameAlive.get() && generation == picked
+                        && move != Move.NONE) {
+                    computerMoving = true;
+                    playMove(move);
+                    computerMoving = false;
+                }
+            });
+        });
+    }
+
+    /**
+     * showBookMove highlights the from and to tiles of the book move with
+     * the highest weight for the side to move, until the next move is made.
+     *
+     * @return whether or not the position has a book move
+     */
+    public boolean showBookMove() {
+        hideHint();
+        Book openingBook = getBook();
+        int move = openingBook == null ? Move.NONE
+                : openingBook.best(position);
+        if (move == Move.NONE) {
+            return false;
+        }
+        hintFrom = Move.from(move);
+        hintTo = Move.to(move);
+        board[toX(hintFrom)][toY(hintFrom)].setHighlighted(true);
+        board[toX(hintTo)][toY(hintTo)].setHighlighted(true);
+        return true;
+    }
+
+    /**
+     * hideHint takes the highlight of a hint off the board.
+     */
+    private void hideHint() {
+        if (hintFrom >= 0) {
+            board[toX(hintFrom)][toY(hintFrom)].setHighlighted(false);
+            board[toX(hintTo)][toY(hintTo)].setHighlighted(false);
+            hintFrom = -1;
+            hintTo = -1;
+        }
+    }
+
+    /**
+     * getBook opens Book.DEFAULT_FILE from the working directory the first
+     * time it is called. The book is mapped, not read, so opening it is
+     * cheap even for a big book.
+     *
+     * @return the book or null if there is none
+     */
+    private static synchronized Book getBook() {
+        if (!bookOpened) {
+            bookOpened = true;
+            if (Files.exists(Paths.get(Book.DEFAULT_FILE))) {
+                try {
+                    book = Book.open(Book.DEFAULT_FILE);
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
+                }
+            }
+        }
+        return book;
+    }
+
+    /**
+     * close ends the game and lets go of the computer's search threads and
+     * tables. A game that is replaced before it is over has to be closed,
+     * since only the end of the game frees them otherwise.
+     */
+    public void close() {
+        hideHint();
+        gameAlive.setValue(false);
+    }
+
+    /**
+     * loadFen sets the board up from a FEN string. Between two people the
+     * board turns to face the side to move, and against the computer it
+     * moves straight away if it is its turn.
+     *
+     * @param fen the FEN string
+     * @throws IllegalArgumentException if the FEN can't be read or the side
+     * that just moved is in check
+     * @throws IllegalStateException if the game is over
+     */
+    @Override
+    public void loadFen(String fen) {
+        hideHint();
+        super.loadFen(fen);
+        if (!vsComputer) {
+            setTeam(getTurn());
+            faceTurn();
+            return;
+        }
+        //Drop the move the computer was picking for the old position
+        generation++;
+        if (thinking != null) {
+            thinking.cancel(false);
+        }
+        search.stop();
+        if (getTurn() == COMPUTER_TEAM) {
+            computerMove();
+        }
+    }
+
     /**
      * Changes the turn, and flips the board so the other player can move.
      */
     @Override
     public void changeTurn() {
         super.changeTurn();
-        if (!getTurn()) {
-            this.setRotate(180);
-            for (int x = 0; x < WIDTH; x++) {
-                for (int y = 0; y < HEIGHT; y++) {
-                    if (board[x][y].hasPiece()) {
-                        board[x][y].getPiece().setRotate(180);
-                    }
-                }
-            }
-        } else {
-            this.setRotate(0);
-            for (int x = 0; x < WIDTH; x++) {
-                for (int y = 0; y < HEIGHT; y++) {
-                    if (board[x][y].hasPiece()) {
-                        board[x][y].getPiece().setRotate(0);
-                    }
+        //Against the computer the board always faces the player
+        if (vsComputer) {
+            return;
+        }
+        faceTurn();
+        setTeam(!getTeam());
+    }
+
+    /**
+     * faceTurn turns the board and the pieces so the side to move is at the
+     * bottom.
+     */
+    private void faceTurn() {
+        int angle = getTurn() ? 0 : 180;
+        this.setRotate(angle);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                if (board[x][y].hasPiece()) {
+                    board[x][y].getPiece().setRotate(angle);
                 }
             }
         }
-        setTeam(!getTeam());
     }
 }
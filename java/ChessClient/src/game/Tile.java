@@ -2,6 +2,7 @@ package game;
 
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.StrokeType;
 
 /**
  * Tile represents one of the tiles of the board. Its contains a piece.
@@ -53,4 +54,18 @@ public class Tile extends Rectangle {
     public void setPiece(Piece piece) {
         this.piece = piece;
     }
+
+    /**
+     * setHighlighted draws a border around the tile, or takes it away.
+     * @param highlighted whether or not the tile is highlighted
+     */
+    public void setHighlighted(boolean highlighted) {
+        if (highlighted) {
+            setStroke(Color.valueOf("#2E7D32"));
+            setStrokeWidth(4);
+            setStrokeType(StrokeType.INSIDE);
+        } else {
+            setStroke(null);
+        }
+    }
 }
@@ -68,12 +68,11 @@ public class Listen implements Runnable {
         String line = clientInput.readLine();
         clientInput.readLine();
 
-        int x1 = line.charAt(0) - '0';
-        int y1 = line.charAt(3) - '0';
-        int x2 = line.charAt(6) - '0';
-        int y2 = line.charAt(9) - '0';
-        char pp = line.charAt(12);
-        game.checkMove(x1, y1, x2, y2, pp, !game.getTeam());
+        try {
+            game.checkMove(Integer.parseInt(line.trim()), !game.getTeam());
+        } catch (NumberFormatException e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     private void chatMessage() throws IOException {
@@ -180,22 +180,17 @@ public class Messages {
     }
 
     /**
-     * Build and return a move message built from the start and end position
-     * provided.
+     * Build and return a move message built from a packed move. The move is
+     * sent as its packed number, which already holds the squares and the
+     * piece a pawn promotes to.
      *
-     * @param x1 The starting x coordinate for the piece
-     * @param y1 The starting y coordinate for the piece
-     * @param x2 The ending x coordinate for the piece
-     * @param y2 The ending y coordinate for the piece
-     * @param pp The piece that a pawn wants to promote to
+     * @param move The packed move
      * @return The build move message.
      */
-    public static String move(int x1, int y1, int x2, int y2, char pp) {
+    public static String move(int move) {
         StringBuilder clientOutput = new StringBuilder();
         clientOutput.append("MOVE\n");
-        clientOutput.append(x1).append(", ").append(y1).append(", ");
-        clientOutput.append(x2).append(", ").append(y2).append(", ");
-        clientOutput.append(pp).append("\n");
+        clientOutput.append(move).append("\n");
         clientOutput.append("END\n");
         return clientOutput.toString();
     }